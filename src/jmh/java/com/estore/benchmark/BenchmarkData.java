@@ -0,0 +1,51 @@
+package com.estore.benchmark;
+
+import com.estore.dto.response.OrderItemResponseDto;
+import com.estore.dto.response.OrderResponseDto;
+import com.estore.model.Order;
+import com.estore.model.Product;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+
+import static com.estore.model.OrderStatus.CREATED;
+
+/**
+ * {@link BenchmarkData} creates the model and dto objects used by the benchmarks.
+ *
+ * @author Dmytro Trotsenko on 7/21/23
+ */
+
+final class BenchmarkData {
+
+    private BenchmarkData() {
+    }
+
+    static Product product(long id) {
+        return new Product(id, "product" + id, "description of product " + id, BigDecimal.valueOf(100 + id, 2));
+    }
+
+    static Order order(long id) {
+        return new Order(id, 1L, LocalDate.now(), CREATED, BigDecimal.valueOf(10_000, 2), 5);
+    }
+
+    static List<Order> orders(int size) {
+        return LongStream.rangeClosed(1, size)
+                .mapToObj(BenchmarkData::order)
+                .toList();
+    }
+
+    static List<OrderItemResponseDto> orderItems(int size) {
+        return IntStream.rangeClosed(1, size)
+                .mapToObj(i -> new OrderItemResponseDto((long) i, product(i), i % 5 + 1))
+                .toList();
+    }
+
+    static OrderResponseDto orderWithItems(long id, int items) {
+        return new OrderResponseDto(id, 1L, LocalDate.now(), orderItems(items), CREATED, null);
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.estore.benchmark;
+
+import com.estore.dto.request.ProductRequestDto;
+import com.estore.errorhandling.ExceptionsHandler;
+import com.estore.exception.ModelNotFoundException;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.MethodParameter;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.BeanPropertyBindingResult;
+import org.springframework.web.bind.support.WebExchangeBindException;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ExceptionsHandlerBenchmark} measures the error message formatting of {@link ExceptionsHandler}.
+ *
+ * @author Dmytro Trotsenko on 7/21/23
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExceptionsHandlerBenchmark {
+
+    private final ExceptionsHandler exceptionsHandler = new ExceptionsHandler();
+
+    private WebExchangeBindException bindException;
+    private ModelNotFoundException notFoundException;
+
+    @Setup
+    public void setup() throws NoSuchMethodException {
+        var bindingResult = new BeanPropertyBindingResult(new ProductRequestDto(), "product");
+        bindingResult.rejectValue("name", "Size", "size must be between 3 and 25");
+        bindingResult.rejectValue("description", "NotNull", "must not be null");
+        bindingResult.rejectValue("price", "DecimalMin", "must be greater than 0.0");
+
+        var parameter = new MethodParameter(ExceptionsHandlerBenchmark.class.getDeclaredMethod("validated", ProductRequestDto.class), 0);
+        bindException = new WebExchangeBindException(parameter, bindingResult);
+        notFoundException = new ModelNotFoundException("Product id=100 wasn't found");
+    }
+
+    @Benchmark
+    public ResponseEntity<List<String>> handleValidationException() {
+        return exceptionsHandler.handleValidationException(bindException);
+    }
+
+    @Benchmark
+    public ResponseEntity<Map<String, List<String>>> handleNotFoundException() {
+        return exceptionsHandler.handleNotFoundException(notFoundException);
+    }
+
+    @SuppressWarnings("unused")
+    private void validated(ProductRequestDto product) {
+        // Method parameter of the bind exception
+    }
+
+}
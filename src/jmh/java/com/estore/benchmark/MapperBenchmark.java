@@ -0,0 +1,85 @@
+package com.estore.benchmark;
+
+import com.estore.dto.request.OrderItemRequestDto;
+import com.estore.dto.request.ProductRequestDto;
+import com.estore.dto.response.OrderItemResponseDto;
+import com.estore.dto.response.OrderResponseDto;
+import com.estore.dto.response.ProductResponseDto;
+import com.estore.mapper.OrderItemMapper;
+import com.estore.mapper.OrderMapper;
+import com.estore.mapper.ProductMapper;
+import com.estore.model.Order;
+import com.estore.model.OrderItem;
+import com.estore.model.Product;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link MapperBenchmark} measures the MapStruct mappers used on every request.
+ *
+ * @author Dmytro Trotsenko on 7/21/23
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MapperBenchmark {
+
+    private final OrderMapper orderMapper = Mappers.getMapper(OrderMapper.class);
+    private final OrderItemMapper orderItemMapper = Mappers.getMapper(OrderItemMapper.class);
+    private final ProductMapper productMapper = Mappers.getMapper(ProductMapper.class);
+
+    private Order order;
+    private OrderResponseDto orderResponseDto;
+    private OrderItem orderItem;
+    private OrderItemRequestDto orderItemRequestDto;
+    private Product product;
+    private ProductRequestDto productRequestDto;
+
+    @Setup
+    public void setup() {
+        order = BenchmarkData.order(1L);
+        orderResponseDto = BenchmarkData.orderWithItems(1L, 20);
+        orderItem = new OrderItem(1L, 1L, 1L, 3);
+        orderItemRequestDto = new OrderItemRequestDto(1L, 3);
+        product = BenchmarkData.product(1L);
+        productRequestDto = new ProductRequestDto("laptop", "Lenovo", BigDecimal.valueOf(3550.95));
+    }
+
+    @Benchmark
+    public OrderResponseDto orderToDto() {
+        return orderMapper.toDto(order);
+    }
+
+    @Benchmark
+    public Order orderResponseDtoToModel() {
+        return orderMapper.toModel(orderResponseDto);
+    }
+
+    @Benchmark
+    public OrderItemResponseDto orderItemToDto() {
+        return orderItemMapper.toDto(orderItem);
+    }
+
+    @Benchmark
+    public OrderItem orderItemRequestDtoToModel() {
+        return orderItemMapper.toModel(orderItemRequestDto);
+    }
+
+    @Benchmark
+    public ProductResponseDto productToDto() {
+        return productMapper.toDto(product);
+    }
+
+    @Benchmark
+    public Product productRequestDtoToModel() {
+        return productMapper.toModel(productRequestDto);
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.estore.benchmark;
+
+import com.estore.dto.response.OrderItemResponseDto;
+import com.estore.dto.response.OrderResponseDto;
+import com.estore.mapper.OrderMapper;
+import com.estore.model.Order;
+import com.estore.repository.OrderRepository;
+import com.estore.service.OrderItemService;
+import com.estore.service.OrderService;
+import org.mapstruct.factory.Mappers;
+import org.openjdk.jmh.annotations.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import java.lang.reflect.Proxy;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * {@link OrderServiceBenchmark} measures the {@link OrderService} hot path:
+ * the reactive assembly of the order relations against an in-memory repository stand-in, so no database time is included.
+ *
+ * @author Dmytro Trotsenko on 7/21/23
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderServiceBenchmark {
+
+    @Param({"1", "20", "200"})
+    private int itemsPerOrder;
+
+    @Param({"100"})
+    private int orders;
+
+    private OrderService orderService;
+
+    @Setup
+    public void setup() {
+        List<Order> storedOrders = BenchmarkData.orders(orders);
+        Map<Long, Order> ordersById = storedOrders.stream()
+                .collect(Collectors.toMap(Order::getId, Function.identity()));
+        List<OrderItemResponseDto> storedItems = BenchmarkData.orderItems(itemsPerOrder);
+
+        OrderItemService orderItemService = new OrderItemService(null, null) {
+            @Override
+            public Flux<OrderItemResponseDto> findAllOrderItemsWithProductsByOrderId(Long id) {
+                return Flux.fromIterable(storedItems);
+            }
+
+            @Override
+            public Flux<Tuple2<Long, OrderItemResponseDto>> findAllOrderItemsWithProductsByOrderIds(Collection<Long> ids) {
+                return Flux.fromIterable(ids)
+                        .flatMapIterable(id -> storedItems.stream()
+                                .map(item -> Tuples.of(id, item))
+                                .toList());
+            }
+        };
+
+        orderService = new OrderService(inMemoryOrderRepository(storedOrders, ordersById), null, orderItemService,
+                null, Mappers.getMapper(OrderMapper.class));
+    }
+
+    @Benchmark
+    public OrderResponseDto findById() {
+        return orderService.findById(1L).block();
+    }
+
+    @Benchmark
+    public List<OrderResponseDto> findAll() {
+        return orderService.findAll().collectList().block();
+    }
+
+    /**
+     * In-memory stand-in for the repository, only the methods used by the benchmarks are supported
+     */
+    private static OrderRepository inMemoryOrderRepository(List<Order> orders, Map<Long, Order> ordersById) {
+        return (OrderRepository) Proxy.newProxyInstance(OrderRepository.class.getClassLoader(),
+                new Class<?>[]{OrderRepository.class},
+                (proxy, method, args) -> switch (method.getName()) {
+                    case "findById" -> Mono.justOrEmpty(ordersById.get((Long) args[0]));
+                    case "findAll" -> Flux.fromIterable(orders);
+                    default -> throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.estore.cache;
+
+import com.estore.model.Product;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * {@link ProductCache} is the in-process cache of {@link Product} by id.
+ * <p>The cache is bounded by size and time to live, it must be invalidated by every product write operation.
+ * Concurrent loads of the same id share one repository call.</p>
+ *
+ * @author Dmytro Trotsenko on 7/14/23
+ */
+
+@Component
+@Slf4j
+public class ProductCache {
+
+    private final AsyncCache<Long, Product> cache;
+
+    public ProductCache(@Value("${estore.cache.product.max-size}") long maxSize,
+                        @Value("${estore.cache.product.ttl}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+    }
+
+    /**
+     * Get product from the cache or load it and cache the result
+     *
+     * @param id     product id
+     * @param loader loads the product if it is absent in the cache
+     * @return cached or loaded product, empty if the product doesn't exist
+     */
+    public Mono<Product> get(Long id, Function<Long, Mono<Product>> loader) {
+        return Mono.fromFuture(() -> cache.get(id, (key, executor) -> loader.apply(key).toFuture()));
+    }
+
+    /**
+     * Put product into the cache
+     *
+     * @param product saved product
+     */
+    public void put(Product product) {
+        cache.synchronous().put(product.getId(), product);
+    }
+
+    /**
+     * Remove product from the cache
+     *
+     * @param id product id
+     */
+    public void invalidate(Long id) {
+        cache.synchronous().invalidate(id);
+    }
+
+    /**
+     * Remove all products from the cache
+     */
+    public void invalidateAll() {
+        log.info("Product cache has been cleared");
+        cache.synchronous().invalidateAll();
+    }
+
+    /**
+     * Hit, miss and eviction counters of the cache
+     *
+     * @return cache statistics since the start
+     */
+    public CacheStats stats() {
+        return cache.synchronous().stats();
+    }
+
+    /**
+     * Synchronous view of the underlying cache for the metrics binding
+     *
+     * @return Caffeine cache
+     */
+    public Cache<Long, Product> getNativeCache() {
+        return cache.synchronous();
+    }
+
+    /**
+     * Approximate number of cached products
+     *
+     * @return cache size
+     */
+    public long size() {
+        return cache.synchronous().estimatedSize();
+    }
+
+}
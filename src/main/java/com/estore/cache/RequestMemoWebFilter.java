@@ -0,0 +1,33 @@
+package com.estore.cache;
+
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link RequestMemoWebFilter} puts the request-scoped memo of the loaded users into the Reactor context,
+ * so one request never loads the same user twice, even if the {@link UserCache} entry has expired.
+ * <p>The filter runs before the security filter chain, so the authentication lookups share the memo.</p>
+ *
+ * @author Dmytro Trotsenko on 7/25/23
+ */
+
+@Component
+@Order(Ordered.HIGHEST_PRECEDENCE)
+public class RequestMemoWebFilter implements WebFilter {
+
+    static final String USERS_MEMO_KEY = RequestMemoWebFilter.class.getName() + ".USERS";
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        return chain.filter(exchange)
+                .contextWrite(context -> context.put(USERS_MEMO_KEY, new ConcurrentHashMap<>()));
+    }
+
+}
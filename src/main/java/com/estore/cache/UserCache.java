@@ -0,0 +1,87 @@
+package com.estore.cache;
+
+import com.estore.model.UserEntity;
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * {@link UserCache} is the in-process cache of {@link UserEntity} by username,
+ * shared by the authentication and the user lookups of the controllers.
+ * <p>The cache has a short time to live, it must be invalidated by every user write operation.
+ * Within one request a username is loaded at most once, see {@link RequestMemoWebFilter}.</p>
+ *
+ * @author Dmytro Trotsenko on 7/25/23
+ */
+
+@Component
+@Slf4j
+public class UserCache {
+
+    private final AsyncCache<String, UserEntity> cache;
+
+    public UserCache(@Value("${estore.cache.user.max-size}") long maxSize,
+                     @Value("${estore.cache.user.ttl}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+    }
+
+    /**
+     * Get user from the request memo or the cache, otherwise load it and cache the result
+     *
+     * @param username username
+     * @param loader   loads the user if it is absent in the cache
+     * @return cached or loaded user, empty if the user doesn't exist
+     */
+    public Mono<UserEntity> get(String username, Function<String, Mono<UserEntity>> loader) {
+        return Mono.deferContextual(context -> context.<Map<String, Mono<UserEntity>>>getOrEmpty(RequestMemoWebFilter.USERS_MEMO_KEY)
+                .map(memo -> memo.computeIfAbsent(username, key -> load(key, loader).cache()))
+                .orElseGet(() -> load(username, loader)));
+    }
+
+    /**
+     * Remove user from the cache
+     *
+     * @param username username
+     */
+    public void invalidate(String username) {
+        cache.synchronous().invalidate(username);
+    }
+
+    /**
+     * Remove all users from the cache
+     */
+    public void invalidateAll() {
+        log.info("User cache has been cleared");
+        cache.synchronous().invalidateAll();
+    }
+
+    /**
+     * Synchronous view of the underlying cache for the metrics binding
+     *
+     * @return Caffeine cache
+     */
+    public Cache<String, UserEntity> getNativeCache() {
+        return cache.synchronous();
+    }
+
+    //-----------------------------------
+    //         Private methods
+    //-----------------------------------
+
+    private Mono<UserEntity> load(String username, Function<String, Mono<UserEntity>> loader) {
+        return Mono.fromFuture(() -> cache.get(username, (key, executor) -> loader.apply(key).toFuture()));
+    }
+
+}
@@ -4,10 +4,12 @@ import com.estore.dto.request.UserRequestDto;
 import com.estore.model.UserRole;
 import com.estore.service.UserService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.thymeleaf.spring6.context.webflux.ReactiveDataDriverContextVariable;
 import reactor.core.publisher.Mono;
 
 /**
@@ -22,14 +24,15 @@ import reactor.core.publisher.Mono;
 public class AdminController {
 
     private final UserService userService;
+    @Value("${estore.thymeleaf.data-driver-buffer-size}")
+    private int dataDriverBufferSize;
 
     @GetMapping
     public Mono<String> admin(Model model) {
-        return userService.findAll().collectList()
-                .doOnNext(users -> model.addAttribute("users", users))
-                .doOnNext(users -> model.addAttribute("user", new UserRequestDto()))
-                .doOnNext(users -> model.addAttribute("roles", UserRole.values()))
-                .then(Mono.just("main/admin"));
+        model.addAttribute("users", new ReactiveDataDriverContextVariable(userService.findAll(), dataDriverBufferSize));
+        model.addAttribute("user", new UserRequestDto());
+        model.addAttribute("roles", UserRole.values());
+        return Mono.just("main/admin");
     }
 
 }
@@ -1,9 +1,9 @@
 package com.estore.controller;
 
 import com.estore.dto.request.OrderRequestDto;
-import com.estore.dto.response.OrderResponseDto;
 import com.estore.service.OrderService;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.ReactiveSecurityContextHolder;
 import org.springframework.security.core.context.SecurityContext;
@@ -11,6 +11,7 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.thymeleaf.spring6.context.webflux.ReactiveDataDriverContextVariable;
 import reactor.core.publisher.Mono;
 
 import static com.estore.model.OrderStatus.CREATED;
@@ -28,17 +29,19 @@ import static com.estore.model.UserRole.ADMIN;
 public class CartController {
 
     private final OrderService orderService;
+    @Value("${estore.thymeleaf.data-driver-buffer-size}")
+    private int dataDriverBufferSize;
 
     @GetMapping
     public Mono<String> getOrders(Model model) {
 
+        // All orders are streamed to the admin page by chunks, a user sees only the own bounded cart
         return getAuthentication()
-                .flatMapMany(auth -> (isAdmin(auth)) ? orderService.findAll()
-                        : orderService.findAllOrderByUsernameAndStatus(auth.getName(), CREATED))
-                .collectList()
+                .flatMap(auth -> (isAdmin(auth))
+                        ? Mono.just(new ReactiveDataDriverContextVariable(orderService.findAll(), dataDriverBufferSize))
+                        : orderService.findAllOrderByUsernameAndStatus(auth.getName(), CREATED).collectList())
                 .doOnNext(orders -> model.addAttribute("orders", orders))
                 .doOnNext(orders -> model.addAttribute("orderForm", new OrderRequestDto()))
-                .doOnNext(orders -> model.addAttribute("acceptedOrder", new OrderResponseDto()))
                 .map(orderDto -> "main/cart")
                 .onErrorResume(throwable -> {
                     model.addAttribute("err", throwable.getMessage());
@@ -83,8 +86,9 @@ public class CartController {
     }
 
     @PostMapping("/buy")
-    public Mono<String> buy(@ModelAttribute("acceptedOrder") OrderResponseDto order, Model model) {
-        return orderService.accept(order)
+    public Mono<String> buy(@RequestParam("id") Long id, Model model) {
+        return getAuthentication()
+                .flatMap(auth -> orderService.accept(id, auth.getName()))
                 .map(acceptedOrder -> "redirect:/cart")
                 .onErrorResume(throwable -> {
                     model.addAttribute("err", throwable.getMessage());
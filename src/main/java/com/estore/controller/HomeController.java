@@ -6,6 +6,7 @@ import com.estore.service.OrderService;
 import com.estore.service.ProductService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.ReactiveSecurityContextHolder;
 import org.springframework.security.core.context.SecurityContext;
@@ -14,6 +15,7 @@ import org.springframework.ui.Model;
 import org.springframework.validation.Errors;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.thymeleaf.spring6.context.webflux.ReactiveDataDriverContextVariable;
 import reactor.core.publisher.Mono;
 
 import static com.estore.model.OrderStatus.*;
@@ -32,14 +34,24 @@ public class HomeController {
 
     private final ProductService productService;
     private final OrderService orderService;
+    @Value("${estore.thymeleaf.data-driver-buffer-size}")
+    private int dataDriverBufferSize;
+    @Value("${estore.product.search-limit}")
+    private int searchLimit;
 
     @GetMapping
     public Mono<String> getProducts(@RequestParam(required = false) String name, Model model) {
-        var productsFlux = (name == null) ? productService.findAll() : productService.findByNameContaining(name);
-        return productsFlux.collectList()
+        model.addAttribute("product", new ProductRequestDto());
+        model.addAttribute("orderItem", new OrderItemRequestDto());
+
+        // The whole catalog is streamed to the page by chunks of dataDriverBufferSize products
+        if (name == null) {
+            model.addAttribute("products", new ReactiveDataDriverContextVariable(productService.findAll(), dataDriverBufferSize));
+            return Mono.just("main/home");
+        }
+
+        return productService.search(name, searchLimit).collectList()
                 .doOnNext(products -> model.addAttribute("products", products))
-                .doOnNext(products -> model.addAttribute("product", new ProductRequestDto()))
-                .doOnNext(products -> model.addAttribute("orderItem", new OrderItemRequestDto()))
                 .map(products -> "main/home")
                 .onErrorResume(throwable -> {
                     model.addAttribute("err", throwable.getMessage());
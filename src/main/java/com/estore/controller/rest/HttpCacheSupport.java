@@ -0,0 +1,65 @@
+package com.estore.controller.rest;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link HttpCacheSupport} adds the strong {@code ETag} and the {@code Cache-Control} headers to the read responses.
+ * <p>The ETag is the MD5 hash of the JSON body, like the ETag of {@code ShallowEtagHeaderFilter}.
+ * A GET with the matching {@code If-None-Match} header is answered with 304 Not Modified and without the body
+ * by the {@code ResponseEntity} result handler.</p>
+ *
+ * @author Dmytro Trotsenko on 8/1/23
+ */
+
+@Component
+@RequiredArgsConstructor
+class HttpCacheSupport {
+
+    private final ObjectMapper objectMapper;
+
+    /**
+     * Wrap the body into the OK response with the ETag and Cache-Control headers
+     *
+     * @param body         response body
+     * @param cacheControl cache policy of the response
+     * @return response with the caching headers
+     */
+    <T> Mono<ResponseEntity<T>> toResponse(Mono<T> body, CacheControl cacheControl) {
+        return withETag(body.map(ResponseEntity::ok), cacheControl);
+    }
+
+    /**
+     * Add the ETag and Cache-Control headers to the response, the status and other headers are kept
+     *
+     * @param response     response with the body
+     * @param cacheControl cache policy of the response
+     * @return response with the caching headers
+     */
+    <T> Mono<ResponseEntity<T>> withETag(Mono<ResponseEntity<T>> response, CacheControl cacheControl) {
+        return response.map(entity -> ResponseEntity.status(entity.getStatusCode())
+                .headers(entity.getHeaders())
+                .eTag(eTag(entity.getBody()))
+                .cacheControl(cacheControl)
+                .body(entity.getBody()));
+    }
+
+    //-----------------------------------
+    //         Private methods
+    //-----------------------------------
+
+    private String eTag(Object body) {
+        try {
+            return "\"" + DigestUtils.md5DigestAsHex(objectMapper.writeValueAsBytes(body)) + "\"";
+        } catch (JsonProcessingException ex) {
+            throw new IllegalStateException("ETag can't be calculated for " + body.getClass().getSimpleName(), ex);
+        }
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.estore.controller.rest;
+
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * {@link KeysetPage} builds the responses of the keyset (cursor) paginated list endpoints.
+ * <p>A page is requested with {@code ?after=<id>&limit=N}, the id to continue from is returned
+ * in the {@value #NEXT_CURSOR_HEADER} header while the page is full.</p>
+ *
+ * @author Dmytro Trotsenko on 7/12/23
+ */
+
+final class KeysetPage {
+
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    static final String DEFAULT_LIMIT = "50";
+    static final long MAX_LIMIT = 1000;
+
+    private KeysetPage() {
+    }
+
+    /**
+     * Collect a page and add the next cursor to the response
+     *
+     * @param page        page of elements ordered by id, not larger than limit
+     * @param limit       requested page size
+     * @param idExtractor extracts the keyset id from an element
+     * @return response with the page as body and the next cursor header if there can be more elements
+     */
+    static <T> Mono<ResponseEntity<List<T>>> toResponse(Flux<T> page, int limit, Function<T, Long> idExtractor) {
+        return page.collectList()
+                .map(elements -> {
+                    var response = ResponseEntity.ok();
+                    if (elements.size() == limit) {
+                        response.header(NEXT_CURSOR_HEADER, String.valueOf(idExtractor.apply(elements.get(elements.size() - 1))));
+                    }
+                    return response.body(elements);
+                });
+    }
+
+}
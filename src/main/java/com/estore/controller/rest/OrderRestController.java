@@ -3,17 +3,24 @@ package com.estore.controller.rest;
 import com.estore.dto.request.OrderItemRequestDto;
 import com.estore.dto.request.OrderRequestDto;
 import com.estore.dto.response.OrderResponseDto;
+import com.estore.dto.response.OrderSummaryDto;
 import com.estore.service.OrderService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
-import reactor.core.publisher.Flux;
+import org.springframework.web.server.ServerWebInputException;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 /**
  * {@link OrderRestController}
  *
@@ -21,6 +28,7 @@ import reactor.core.publisher.Mono;
  */
 
 @RestController
+@Validated
 @RequestMapping("/orders")
 @RequiredArgsConstructor
 @Tag(name = "Orders")
@@ -28,6 +36,10 @@ import reactor.core.publisher.Mono;
 public class OrderRestController {
 
     private final OrderService orderService;
+    private final HttpCacheSupport httpCacheSupport;
+
+    // The order lists return the summaries, the heavy graph with the items is opted in by ?expand=items
+    private static final String EXPAND_ITEMS = "items";
 
     @PostMapping("/{userId}")
     @ResponseStatus(HttpStatus.CREATED)
@@ -52,23 +64,37 @@ public class OrderRestController {
 
     @GetMapping
     @ResponseStatus(HttpStatus.OK)
-    @Operation(summary = "Find all Orders")
-    public Flux<OrderResponseDto> findAll() {
-        return orderService.findAll();
+    @Operation(summary = "Find a page of Order summaries after id, with the order items and products by ?expand=items")
+    public Mono<ResponseEntity<? extends List<?>>> findAll(@RequestParam(required = false) Long after,
+                                                           @RequestParam(defaultValue = KeysetPage.DEFAULT_LIMIT)
+                                                           @Min(1) @Max(KeysetPage.MAX_LIMIT) int limit,
+                                                           @RequestParam(required = false) List<String> expand) {
+        return isItemsExpanded(expand)
+                .flatMap(items -> items
+                        ? KeysetPage.toResponse(orderService.findAll(after, limit), limit, OrderResponseDto::getId)
+                        : KeysetPage.toResponse(orderService.findAllSummaries(after, limit), limit, OrderSummaryDto::getId));
     }
 
     @GetMapping("/user/{id}")
     @ResponseStatus(HttpStatus.OK)
-    @Operation(summary = "Find all Orders by UserId")
-    public Flux<OrderResponseDto> findAllByUserId(@PathVariable long id) {
-        return orderService.findAllByUserId(id);
+    @Operation(summary = "Find a page of Order summaries by UserId after id, with the order items and products by ?expand=items")
+    public Mono<ResponseEntity<? extends List<?>>> findAllByUserId(@PathVariable long id,
+                                                                   @RequestParam(required = false) Long after,
+                                                                   @RequestParam(defaultValue = KeysetPage.DEFAULT_LIMIT)
+                                                                   @Min(1) @Max(KeysetPage.MAX_LIMIT) int limit,
+                                                                   @RequestParam(required = false) List<String> expand) {
+        return isItemsExpanded(expand)
+                .flatMap(items -> items
+                        ? KeysetPage.toResponse(orderService.findAllByUserId(id, after, limit), limit, OrderResponseDto::getId)
+                        : KeysetPage.toResponse(orderService.findAllSummariesByUserId(id, after, limit), limit, OrderSummaryDto::getId));
     }
 
     @GetMapping("/{id}")
     @ResponseStatus(HttpStatus.OK)
-    @Operation(summary = "Find Order by id")
-    public Mono<OrderResponseDto> findById(@PathVariable("id") long id) {
-        return orderService.findById(id);
+    @Operation(summary = "Find Order by id, revalidated by ETag")
+    public Mono<ResponseEntity<OrderResponseDto>> findById(@PathVariable("id") long id) {
+        // An order belongs to one user, it is cached privately and revalidated on every read
+        return httpCacheSupport.toResponse(orderService.findById(id), CacheControl.noCache().cachePrivate());
     }
 
     @DeleteMapping("/product/{userId}/{productId}")
@@ -85,4 +111,27 @@ public class OrderRestController {
         return orderService.deleteById(id);
     }
 
+    /**
+     * Parse the comma separated expand parameter, the values are case-insensitive
+     *
+     * @param expand values of the expand parameter, may be null
+     * @return true if the order items are expanded, an error for an unknown value
+     */
+    private static Mono<Boolean> isItemsExpanded(List<String> expand) {
+        if (expand == null) {
+            return Mono.just(false);
+        }
+        boolean items = false;
+        for (String value : expand) {
+            String name = value.strip();
+            if (name.equalsIgnoreCase(EXPAND_ITEMS)) {
+                items = true;
+            } else if (!name.isEmpty()) {
+                return Mono.error(new ServerWebInputException(
+                        "Parameter 'expand' value '" + name + "' is not supported, expected '" + EXPAND_ITEMS + "'"));
+            }
+        }
+        return Mono.just(items);
+    }
+
 }
@@ -1,17 +1,35 @@
 package com.estore.controller.rest;
 
+import com.estore.dto.response.ProductImportResponseDto;
 import com.estore.dto.response.ProductResponseDto;
 import com.estore.dto.request.ProductRequestDto;
 import com.estore.service.ProductService;
+import com.estore.web.SparseFieldsetJsonEncoder;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.codec.StringDecoder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.server.reactive.ServerHttpRequest;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ServerWebInputException;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
 /**
  * {@link ProductRestController}
  *
@@ -19,25 +37,53 @@ import reactor.core.publisher.Mono;
  */
 
 @RestController
+@Validated
 @RequestMapping("/products")
 @RequiredArgsConstructor
 @Tag(name = "Products")
 public class ProductRestController {
 
     private final ProductService productService;
+    private final HttpCacheSupport httpCacheSupport;
+    @Value("${estore.http-cache.catalog-max-age}")
+    private Duration catalogMaxAge;
+
+    private static final String TEXT_CSV_VALUE = "text/csv";
+    private static final StringDecoder LINES_DECODER = StringDecoder.allMimeTypes();
 
     @GetMapping
     @ResponseStatus(HttpStatus.OK)
-    @Operation(summary = "Find all Products (if not set RequestParam) or Find by containing name")
-    public Flux<ProductResponseDto> getProducts(@RequestParam(required = false) String name) {
-        return (name == null) ? productService.findAll() : productService.findByNameContaining(name);
+    @Operation(summary = "Find a page of Products after id (if not set name) or Search by containing name or description "
+            + "(without 'after'), revalidated by ETag, 'fields' selects the returned fields")
+    public Mono<ResponseEntity<List<ProductResponseDto>>> getProducts(@RequestParam(required = false) String name,
+                                                                      @RequestParam(required = false) Long after,
+                                                                      @RequestParam(defaultValue = KeysetPage.DEFAULT_LIMIT)
+                                                                      @Min(1) @Max(KeysetPage.MAX_LIMIT) int limit,
+                                                                      @RequestParam(required = false) String fields) {
+        if (name != null && after != null) {
+            // The search results are ranked by relevance, so they have no keyset cursor
+            return Mono.error(new ServerWebInputException("Parameter 'after' is not supported together with 'name'"));
+        }
+        // Only the selected columns are read for a page, the search reads the rows in full for the ranking
+        var response = (name == null)
+                ? KeysetPage.toResponse(productService.findAll(after, limit, SparseFieldsetJsonEncoder.parse(fields)),
+                limit, ProductResponseDto::getId)
+                : productService.search(name, limit).collectList().map(ResponseEntity::ok);
+        return httpCacheSupport.withETag(response, catalogCacheControl());
     }
 
     @GetMapping("/{id}")
     @ResponseStatus(HttpStatus.OK)
-    @Operation(summary = "Find Product by id")
-    public Mono<ProductResponseDto> getProductById(@PathVariable("id") long id) {
-        return productService.findById(id);
+    @Operation(summary = "Find Product by id, revalidated by ETag")
+    public Mono<ResponseEntity<ProductResponseDto>> getProductById(@PathVariable("id") long id) {
+        return httpCacheSupport.toResponse(productService.findById(id), catalogCacheControl());
+    }
+
+    @GetMapping("/cache/stats")
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Get Product cache hit, miss and eviction counters")
+    public Mono<Map<String, Long>> getCacheStats() {
+        return productService.getCacheStats();
     }
 
     @PostMapping
@@ -47,6 +93,33 @@ public class ProductRestController {
         return productService.create(product);
     }
 
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_NDJSON_VALUE, TEXT_CSV_VALUE})
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Import Products from NDJSON or CSV ([id,]name,description,price), existing names are updated")
+    public Mono<ProductImportResponseDto> importProducts(ServerHttpRequest request, @RequestBody Flux<DataBuffer> body) {
+        MediaType contentType = request.getHeaders().getContentType();
+        boolean csv = contentType != null && contentType.isCompatibleWith(MediaType.parseMediaType(TEXT_CSV_VALUE));
+        Flux<String> lines = LINES_DECODER.decode(body, ResolvableType.forClass(String.class), contentType, Collections.emptyMap());
+        return productService.importProducts(lines, csv);
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Export all Products as NDJSON stream")
+    public Flux<ProductResponseDto> exportProducts() {
+        return productService.exportAll();
+    }
+
+    @GetMapping(value = "/export", produces = TEXT_CSV_VALUE)
+    @ResponseStatus(HttpStatus.OK)
+    @Operation(summary = "Export all Products as CSV stream")
+    public Flux<String> exportProductsCsv() {
+        return Flux.just(ProductService.CSV_EXPORT_HEADER + "\n")
+                .concatWith(productService.exportAll()
+                        .map(product -> product.getId() + "," + toCsvField(product.getName()) + ","
+                                + toCsvField(product.getDescription()) + "," + product.getPrice().toPlainString() + "\n"));
+    }
+
     @PutMapping("/{id}")
     @ResponseStatus(HttpStatus.OK)
     @Operation(summary = "Update an existing Product")
@@ -68,4 +141,17 @@ public class ProductRestController {
         return productService.deleteAll();
     }
 
+    private static String toCsvField(String value) {
+        return (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r"))
+                ? "\"" + value.replace("\"", "\"\"") + "\""
+                : value;
+    }
+
+    /**
+     * The catalog is the same for all users, shared caches may keep it for a short time
+     */
+    private CacheControl catalogCacheControl() {
+        return CacheControl.maxAge(catalogMaxAge).cachePublic().mustRevalidate();
+    }
+
 }
@@ -4,15 +4,20 @@ import com.estore.dto.request.AddressRequestDto;
 import com.estore.dto.request.UserRequestDto;
 import com.estore.dto.response.UserResponseDto;
 import com.estore.service.UserService;
+import com.estore.web.SparseFieldsetJsonEncoder;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
-import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 /**
  * {@link UserRestController}
  *
@@ -20,6 +25,7 @@ import reactor.core.publisher.Mono;
  */
 
 @RestController
+@Validated
 @RequestMapping("/users")
 @RequiredArgsConstructor
 @Tag(name = "Users")
@@ -57,9 +63,11 @@ public class UserRestController {
 
     @GetMapping("/ordersHistory/{id}")
     @ResponseStatus(HttpStatus.OK)
-    @Operation(summary = "Find User with OrdersHistory by userId")
-    public Mono<UserResponseDto> findUserOrdersHistoryById(@PathVariable("id") long id) {
-        return userService.findUserOrdersHistoryById(id);
+    @Operation(summary = "Find User with OrdersHistory by userId (newest first, paged by 'before' order id and 'limit')")
+    public Mono<UserResponseDto> findUserOrdersHistoryById(@PathVariable("id") long id,
+                                                          @RequestParam(required = false) Long before,
+                                                          @RequestParam(required = false) @Min(1) Integer limit) {
+        return userService.findUserOrdersHistoryById(id, before, limit);
     }
 
     @GetMapping("/fullInfo/{id}")
@@ -71,9 +79,13 @@ public class UserRestController {
 
     @GetMapping
     @ResponseStatus(HttpStatus.OK)
-    @Operation(summary = "Find all Users")
-    public Flux<UserResponseDto> findAll() {
-        return userService.findAll();
+    @Operation(summary = "Find a page of Users after id, 'fields' selects the returned fields")
+    public Mono<ResponseEntity<List<UserResponseDto>>> findAll(@RequestParam(required = false) Long after,
+                                                               @RequestParam(defaultValue = KeysetPage.DEFAULT_LIMIT)
+                                                               @Min(1) @Max(KeysetPage.MAX_LIMIT) int limit,
+                                                               @RequestParam(required = false) String fields) {
+        return KeysetPage.toResponse(userService.findAll(after, limit, SparseFieldsetJsonEncoder.parse(fields)),
+                limit, UserResponseDto::getId);
     }
 
     @DeleteMapping("/{id}")
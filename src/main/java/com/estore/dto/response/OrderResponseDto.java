@@ -1,6 +1,8 @@
 package com.estore.dto.response;
 
 import com.estore.model.OrderStatus;
+import com.estore.web.SparseFieldsetJsonEncoder;
+import com.fasterxml.jackson.annotation.JsonFilter;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -18,6 +20,7 @@ import java.util.List;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
+@JsonFilter(SparseFieldsetJsonEncoder.FILTER_ID)
 public class OrderResponseDto {
 
     private Long id;
@@ -0,0 +1,37 @@
+package com.estore.dto.response;
+
+import com.estore.model.OrderStatus;
+import com.estore.web.SparseFieldsetJsonEncoder;
+import com.fasterxml.jackson.annotation.JsonFilter;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * {@link OrderSummaryDto} is the order without its items, read by a projection of the order row only
+ *
+ * @author Dmytro Trotsenko on 8/7/23
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonFilter(SparseFieldsetJsonEncoder.FILTER_ID)
+public class OrderSummaryDto {
+
+    private Long id;
+
+    private Long userId;
+
+    private LocalDate date;
+
+    private OrderStatus status;
+
+    private BigDecimal totalPrice;
+
+    private Integer itemCount;
+
+}
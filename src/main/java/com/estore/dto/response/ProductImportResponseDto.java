@@ -0,0 +1,29 @@
+package com.estore.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link ProductImportResponseDto} is the report of the bulk products import
+ *
+ * @author Dmytro Trotsenko on 8/3/23
+ */
+
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ProductImportResponseDto {
+
+    private long inserted;
+
+    private long updated;
+
+    private long failed;
+
+    private List<String> errors = new ArrayList<>();
+
+}
@@ -1,5 +1,7 @@
 package com.estore.dto.response;
 
+import com.estore.web.SparseFieldsetJsonEncoder;
+import com.fasterxml.jackson.annotation.JsonFilter;
 import lombok.*;
 
 import java.math.BigDecimal;
@@ -13,6 +15,7 @@ import java.math.BigDecimal;
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
+@JsonFilter(SparseFieldsetJsonEncoder.FILTER_ID)
 public class ProductResponseDto {
 
     private Long id;
@@ -1,6 +1,9 @@
 package com.estore.dto.response;
 
 import com.estore.model.UserRole;
+import com.estore.web.SparseFieldsetJsonEncoder;
+import com.fasterxml.jackson.annotation.JsonFilter;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -16,12 +19,15 @@ import java.util.List;
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
+@JsonFilter(SparseFieldsetJsonEncoder.FILTER_ID)
 public class UserResponseDto {
 
     private Long id;
 
     private String username;
 
+    // The hash is read by the Thymeleaf forms only, it is never written to a JSON response
+    @JsonProperty(access = JsonProperty.Access.WRITE_ONLY)
     private String password;
 
     private UserRole role;
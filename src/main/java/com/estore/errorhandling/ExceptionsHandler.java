@@ -1,6 +1,7 @@
 package com.estore.errorhandling;
 
 import com.estore.exception.ModelNotFoundException;
+import jakarta.validation.ConstraintViolationException;
 import org.springframework.dao.DuplicateKeyException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -13,6 +14,7 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.stream.IntStream;
 
 /**
@@ -39,6 +41,14 @@ public class ExceptionsHandler {
         return ResponseEntity.badRequest().body(customErrMessage);
     }
 
+    @ExceptionHandler(ConstraintViolationException.class)
+    public ResponseEntity<Map<String, List<String>>> handleConstraintViolationException(ConstraintViolationException ex) {
+        List<String> errors = ex.getConstraintViolations().stream()
+                .map(violation -> String.format("Invalid '%s': %s", violation.getPropertyPath(), violation.getMessage()))
+                .toList();
+        return new ResponseEntity<>(getErrorsMap(errors), new HttpHeaders(), HttpStatus.BAD_REQUEST);
+    }
+
     @ExceptionHandler(ModelNotFoundException.class)
     public ResponseEntity<Map<String, List<String>>> handleNotFoundException(ModelNotFoundException ex) {
         List<String> errors = Collections.singletonList(ex.getMessage());
@@ -51,6 +61,12 @@ public class ExceptionsHandler {
         return new ResponseEntity<>(getErrorsMap(errors), new HttpHeaders(), HttpStatus.NOT_ACCEPTABLE);
     }
 
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Map<String, List<String>>> handleRejectedExecutionException(RejectedExecutionException ex) {
+        List<String> errors = Collections.singletonList("Server is busy, try again later");
+        return new ResponseEntity<>(getErrorsMap(errors), new HttpHeaders(), HttpStatus.SERVICE_UNAVAILABLE);
+    }
+
     private Map<String, List<String>> getErrorsMap(List<String> errors) {
         Map<String, List<String>> errorResponse = new HashMap<>();
         errorResponse.put("errors", errors);
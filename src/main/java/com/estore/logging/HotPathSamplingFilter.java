@@ -0,0 +1,63 @@
+package com.estore.logging;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.turbo.TurboFilter;
+import ch.qos.logback.core.spi.FilterReply;
+import org.slf4j.Marker;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link HotPathSamplingFilter} samples the INFO events of the hot path loggers: when sampling is enabled,
+ * only every {@code rate}-th INFO event of the loggers under {@code loggerPrefix} is written.
+ * WARN and ERROR events are never dropped.
+ * <p>The filter is configured in logback.xml and toggled at runtime by {@link LogSamplingEndpoint}.</p>
+ *
+ * @author Dmytro Trotsenko on 7/27/23
+ */
+
+public class HotPathSamplingFilter extends TurboFilter {
+
+    private final AtomicLong counter = new AtomicLong();
+
+    private volatile String loggerPrefix = "com.estore";
+    private volatile int rate = 10;
+    private volatile boolean sampling;
+
+    @Override
+    public FilterReply decide(Marker marker, Logger logger, Level level, String format, Object[] params, Throwable t) {
+        if (!sampling || level != Level.INFO || !logger.getName().startsWith(loggerPrefix)) {
+            return FilterReply.NEUTRAL;
+        }
+        return (counter.incrementAndGet() % rate == 0) ? FilterReply.NEUTRAL : FilterReply.DENY;
+    }
+
+    public String getLoggerPrefix() {
+        return loggerPrefix;
+    }
+
+    public void setLoggerPrefix(String loggerPrefix) {
+        this.loggerPrefix = loggerPrefix;
+    }
+
+    public int getRate() {
+        return rate;
+    }
+
+    public void setRate(int rate) {
+        if (rate < 1) {
+            throw new IllegalArgumentException("Sampling rate must be positive, rate=" + rate);
+        }
+        this.rate = rate;
+    }
+
+    public boolean isSampling() {
+        return sampling;
+    }
+
+    public void setSampling(boolean sampling) {
+        this.sampling = sampling;
+    }
+
+}
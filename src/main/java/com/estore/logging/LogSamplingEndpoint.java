@@ -0,0 +1,71 @@
+package com.estore.logging;
+
+import ch.qos.logback.classic.LoggerContext;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link LogSamplingEndpoint} is the actuator endpoint {@code /actuator/logsampling}
+ * to read and toggle the {@link HotPathSamplingFilter} at runtime.
+ *
+ * @author Dmytro Trotsenko on 7/27/23
+ */
+
+@Component
+@Endpoint(id = "logsampling")
+@Slf4j
+public class LogSamplingEndpoint {
+
+    @ReadOperation
+    public Map<String, Object> sampling() {
+        return toMap(getFilter());
+    }
+
+    /**
+     * Enable or disable the sampling and optionally change the sampling rate
+     *
+     * @param sampling true to write only every rate-th INFO event of the hot path loggers
+     * @param rate     sampling rate, unchanged if null
+     * @return current sampling settings
+     */
+    @WriteOperation
+    public Map<String, Object> configure(boolean sampling, @Nullable Integer rate) {
+        HotPathSamplingFilter filter = getFilter();
+        if (rate != null) {
+            filter.setRate(rate);
+        }
+        filter.setSampling(sampling);
+        log.warn("Log sampling of {} has been set to sampling={} rate={}", filter.getLoggerPrefix(), sampling, filter.getRate());
+        return toMap(filter);
+    }
+
+    //-----------------------------------
+    //         Private methods
+    //-----------------------------------
+
+    private static HotPathSamplingFilter getFilter() {
+        var loggerContext = (LoggerContext) LoggerFactory.getILoggerFactory();
+        return loggerContext.getTurboFilterList().stream()
+                .filter(HotPathSamplingFilter.class::isInstance)
+                .map(HotPathSamplingFilter.class::cast)
+                .findFirst()
+                .orElseThrow(() -> new IllegalStateException("HotPathSamplingFilter isn't configured in logback.xml"));
+    }
+
+    private static Map<String, Object> toMap(HotPathSamplingFilter filter) {
+        Map<String, Object> settings = new LinkedHashMap<>();
+        settings.put("sampling", filter.isSampling());
+        settings.put("rate", filter.getRate());
+        settings.put("loggerPrefix", filter.getLoggerPrefix());
+        return settings;
+    }
+
+}
@@ -15,15 +15,17 @@ import org.mapstruct.Mapping;
 @Mapper(componentModel = "spring")
 public interface OrderMapper {
 
-    @Mapping(target = "totalPrice", ignore = true)
     @Mapping(target = "orderItems", ignore = true)
     OrderResponseDto toDto(Order order);
 
     @Mapping(target = "status", ignore = true)
     @Mapping(target = "userId", ignore = true)
     @Mapping(target = "id", ignore = true)
+    @Mapping(target = "totalPrice", ignore = true)
+    @Mapping(target = "itemCount", ignore = true)
     Order toModel(OrderRequestDto orderRequestDto);
 
+    @Mapping(target = "itemCount", ignore = true)
     Order toModel(OrderResponseDto orderResponseDto);
 
 }
@@ -0,0 +1,65 @@
+package com.estore.metrics;
+
+import com.estore.cache.ProductCache;
+import com.estore.cache.UserCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import io.r2dbc.pool.ConnectionPool;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * {@link MetricsConfig} registers the application meters which are not bound by Spring Boot.
+ * <p>The R2DBC connection pool gauges are bound by the actuator auto-configuration,
+ * the connection acquire time is recorded by {@link TimedConnectionFactory}.</p>
+ *
+ * @author Dmytro Trotsenko on 7/19/23
+ */
+
+@Configuration
+public class MetricsConfig {
+
+    /**
+     * Product cache hits, misses, evictions and size
+     *
+     * @param productCache product cache
+     * @return binder of the product cache meters
+     */
+    @Bean
+    public MeterBinder productCacheMetrics(ProductCache productCache) {
+        return registry -> CaffeineCacheMetrics.monitor(registry, productCache.getNativeCache(), "product");
+    }
+
+    /**
+     * User cache hits, misses, evictions and size
+     *
+     * @param userCache user cache
+     * @return binder of the user cache meters
+     */
+    @Bean
+    public MeterBinder userCacheMetrics(UserCache userCache) {
+        return registry -> CaffeineCacheMetrics.monitor(registry, userCache.getNativeCache(), "user");
+    }
+
+    /**
+     * Wrap the R2DBC connection pool to time the connection acquisition
+     *
+     * @param meterRegistry meter registry, resolved when the pool is created
+     * @return post processor of the connection pool bean
+     */
+    @Bean
+    public static BeanPostProcessor timedConnectionPoolPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return (bean instanceof ConnectionPool pool)
+                        ? new TimedConnectionFactory(pool, beanName, meterRegistry.getObject())
+                        : bean;
+            }
+        };
+    }
+
+}
@@ -0,0 +1,111 @@
+package com.estore.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.aop.framework.AopProxyUtils;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link ReactiveMetricsAspect} times the public methods of the services and the repository calls.
+ * <p>A reactive method only assembles the pipeline, so a {@link Mono} or {@link Flux} is timed
+ * from the subscription to its termination, and the elements emitted by a {@link Flux} are counted.</p>
+ *
+ * @author Dmytro Trotsenko on 7/19/23
+ */
+
+@Aspect
+@Component
+@RequiredArgsConstructor
+public class ReactiveMetricsAspect {
+
+    static final String SERVICE_METRIC = "estore.service";
+    static final String REPOSITORY_METRIC = "estore.repository";
+
+    private final MeterRegistry meterRegistry;
+
+    @Around("execution(public * com.estore.service.*Service.*(..))")
+    public Object timeService(ProceedingJoinPoint joinPoint) throws Throwable {
+        String className = joinPoint.getSignature().getDeclaringType().getSimpleName();
+        return timed(SERVICE_METRIC, className, joinPoint);
+    }
+
+    @Around("execution(public * *(..)) && target(org.springframework.data.repository.Repository)")
+    public Object timeRepository(ProceedingJoinPoint joinPoint) throws Throwable {
+        Class<?>[] repositoryInterfaces = AopProxyUtils.proxiedUserInterfaces(joinPoint.getTarget());
+        String className = (repositoryInterfaces.length > 0) ? repositoryInterfaces[0].getSimpleName()
+                : joinPoint.getSignature().getDeclaringType().getSimpleName();
+        return timed(REPOSITORY_METRIC, className, joinPoint);
+    }
+
+    //-----------------------------------
+    //         Private methods
+    //-----------------------------------
+
+    private Object timed(String metric, String className, ProceedingJoinPoint joinPoint) throws Throwable {
+        String method = joinPoint.getSignature().getName();
+        Object result;
+        Timer.Sample assemblySample = Timer.start(meterRegistry);
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable ex) {
+            // The method failed before returning a publisher
+            assemblySample.stop(timer(metric, className, method, "error"));
+            throw ex;
+        }
+
+        if (result instanceof Mono<?> mono) {
+            return Mono.defer(() -> {
+                Timer.Sample sample = Timer.start(meterRegistry);
+                return mono.doFinally(signal -> sample.stop(timer(metric, className, method, outcome(signal))));
+            });
+        }
+        if (result instanceof Flux<?> flux) {
+            return Flux.defer(() -> {
+                Timer.Sample sample = Timer.start(meterRegistry);
+                AtomicLong elements = new AtomicLong();
+                return flux.doOnNext(element -> elements.incrementAndGet())
+                        .doFinally(signal -> {
+                            sample.stop(timer(metric, className, method, outcome(signal)));
+                            elementsSummary(metric, className, method).record(elements.get());
+                        });
+            });
+        }
+        return result;
+    }
+
+    private Timer timer(String metric, String className, String method, String outcome) {
+        return Timer.builder(metric + ".calls")
+                .description("Time from the subscription to the termination of the call")
+                .tag("class", className)
+                .tag("method", method)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private DistributionSummary elementsSummary(String metric, String className, String method) {
+        return DistributionSummary.builder(metric + ".elements")
+                .description("Number of elements emitted by a Flux call")
+                .tag("class", className)
+                .tag("method", method)
+                .register(meterRegistry);
+    }
+
+    private static String outcome(SignalType signal) {
+        return switch (signal) {
+            case ON_ERROR -> "error";
+            case CANCEL -> "cancel";
+            default -> "success";
+        };
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.estore.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.ConnectionFactory;
+import io.r2dbc.spi.ConnectionFactoryMetadata;
+import io.r2dbc.spi.Wrapped;
+import org.reactivestreams.Publisher;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+
+/**
+ * {@link TimedConnectionFactory} records the time to acquire a connection from the pool
+ * as the {@code r2dbc.pool.acquire} timer, tagged by the pool name and the outcome.
+ * <p>The pool gauges (acquired, pending, idle, allocated) are bound by the actuator,
+ * which unwraps this factory to reach the pool. Disposing the factory disposes the pool.</p>
+ *
+ * @author Dmytro Trotsenko on 7/31/23
+ */
+
+public class TimedConnectionFactory implements ConnectionFactory, Wrapped<ConnectionFactory>, Disposable {
+
+    static final String ACQUIRE_METRIC = "r2dbc.pool.acquire";
+
+    private final ConnectionFactory delegate;
+    private final Timer successTimer;
+    private final Timer errorTimer;
+    private final MeterRegistry meterRegistry;
+
+    public TimedConnectionFactory(ConnectionFactory delegate, String poolName, MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.meterRegistry = meterRegistry;
+        this.successTimer = timer(poolName, "success");
+        this.errorTimer = timer(poolName, "error");
+    }
+
+    @Override
+    public Publisher<? extends Connection> create() {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(meterRegistry);
+            return Mono.from(delegate.create())
+                    .doOnSuccess(connection -> sample.stop(successTimer))
+                    .doOnError(ex -> sample.stop(errorTimer));
+        });
+    }
+
+    @Override
+    public ConnectionFactoryMetadata getMetadata() {
+        return delegate.getMetadata();
+    }
+
+    @Override
+    public ConnectionFactory unwrap() {
+        return delegate;
+    }
+
+    @Override
+    public void dispose() {
+        if (delegate instanceof Disposable disposable) {
+            disposable.dispose();
+        }
+    }
+
+    @Override
+    public boolean isDisposed() {
+        return delegate instanceof Disposable disposable && disposable.isDisposed();
+    }
+
+    //-----------------------------------
+    //         Private methods
+    //-----------------------------------
+
+    private Timer timer(String poolName, String outcome) {
+        return Timer.builder(ACQUIRE_METRIC)
+                .description("Time to acquire a connection from the pool")
+                .tag("name", poolName)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+}
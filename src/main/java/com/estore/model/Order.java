@@ -4,9 +4,11 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.ReadOnlyProperty;
 import org.springframework.data.relational.core.mapping.Column;
 import org.springframework.data.relational.core.mapping.Table;
 
+import java.math.BigDecimal;
 import java.time.LocalDate;
 
 /**
@@ -33,4 +35,18 @@ public class Order {
     @Column
     private OrderStatus status;
 
+    /**
+     * Sum of the OrderItem quantities multiplied by the Product prices, maintained by the OrderItem write paths
+     */
+    @ReadOnlyProperty
+    @Column("total_price")
+    private BigDecimal totalPrice;
+
+    /**
+     * Sum of the OrderItem quantities, maintained together with the total price
+     */
+    @ReadOnlyProperty
+    @Column("item_count")
+    private Integer itemCount;
+
 }
@@ -0,0 +1,89 @@
+package com.estore.repository;
+
+import com.estore.dto.response.OrderItemResponseDto;
+import com.estore.model.Order;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * {@link OrderCustomRepository} is a fragment of {@link OrderRepository}
+ * for the join based reads, the checkout and the totals maintenance which can't be expressed with derived queries.
+ *
+ * @author Dmytro Trotsenko on 7/11/23
+ */
+
+public interface OrderCustomRepository {
+
+    /**
+     * Finds the Orders of the User with their OrderItems and Products in one query.
+     * Orders are returned from the newest to the oldest.
+     *
+     * @param userId User id.
+     * @param before only Orders with id less than this cursor are returned, all Orders if null
+     * @param limit  max number of Orders, unlimited if null
+     * @return pairs of Order and its OrderItems with the related Products loaded
+     */
+    Flux<Tuple2<Order, List<OrderItemResponseDto>>> findOrdersHistoryByUserId(Long userId, Long before, Integer limit);
+
+    /**
+     * Checks out the cart in one statement.
+     * The total price is recomputed from the OrderItems and the current Product prices,
+     * the Order is ACCEPTED only if it belongs to the User, is still CREATED and not empty,
+     * and a new empty cart is created for the User.
+     *
+     * @param orderId  Order id.
+     * @param username username of the owner of the Order.
+     * @return the ACCEPTED Order with its totals, empty if the Order doesn't exist, belongs to another User,
+     * is already ACCEPTED or has no OrderItems
+     */
+    Mono<Order> checkout(Long orderId, String username);
+
+    /**
+     * Recomputes the total price and the item count of the Order from its OrderItems.
+     * Must be called in the transaction of every OrderItem write, after the Order has been locked
+     * by {@link OrderRepository#lockById(Long)}, so the concurrent writes of the same Order can't lose a total.
+     *
+     * @param orderId Order id.
+     * @return number of updated Orders
+     */
+    Mono<Long> refreshTotalsByOrderId(Long orderId);
+
+    /**
+     * Recomputes the totals of the CREATED Orders containing the Product, after its price has been changed.
+     *
+     * @param productId Product id.
+     * @return number of updated Orders
+     */
+    Mono<Long> refreshTotalsByProductId(Long productId);
+
+    /**
+     * Recomputes the totals of the CREATED Orders containing any of the Products, after a bulk Product update.
+     *
+     * @param productIds Product ids.
+     * @return number of updated Orders
+     */
+    Mono<Long> refreshTotalsByProductIds(Collection<Long> productIds);
+
+    /**
+     * Recomputes the totals of the CREATED Orders containing the Product as if its OrderItems were removed.
+     * Must be called before the Product is deleted, its OrderItems are deleted by cascade.
+     *
+     * @param productId Product id.
+     * @return number of updated Orders
+     */
+    Mono<Long> refreshTotalsWithoutProduct(Long productId);
+
+    /**
+     * Recomputes the totals of all CREATED Orders, only the stale ones are written.
+     * The totals of the ACCEPTED Orders are kept as they were checked out.
+     * Used after all the Products have been deleted, the CREATED Orders are locked first.
+     *
+     * @return number of updated Orders
+     */
+    Mono<Long> refreshAllTotals();
+
+}
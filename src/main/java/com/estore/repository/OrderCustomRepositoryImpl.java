@@ -0,0 +1,221 @@
+package com.estore.repository;
+
+import com.estore.dto.response.OrderItemResponseDto;
+import com.estore.model.Order;
+import com.estore.model.OrderStatus;
+import io.r2dbc.spi.Row;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * {@link OrderCustomRepositoryImpl} is the {@link DatabaseClient} based implementation
+ * of {@link OrderCustomRepository}.
+ *
+ * @author Dmytro Trotsenko on 7/11/23
+ */
+
+@RequiredArgsConstructor
+public class OrderCustomRepositoryImpl implements OrderCustomRepository {
+
+    private final DatabaseClient databaseClient;
+
+    /**
+     * Totals of the order aliased {@code o}, the product_id parameter excludes the OrderItems of one Product
+     */
+    private static final String ORDER_TOTALS = """
+            SELECT COALESCE(SUM(oi.quantity * p.price), 0), COALESCE(SUM(oi.quantity), 0)
+            FROM e_store.order_item oi
+            JOIN e_store.product p ON p.id = oi.fk_product_id
+            WHERE oi.fk_order_id = o.id AND oi.fk_product_id IS DISTINCT FROM :excluded_product_id
+            """;
+
+    @Override
+    public Flux<Tuple2<Order, List<OrderItemResponseDto>>> findOrdersHistoryByUserId(Long userId, Long before, Integer limit) {
+        var spec = databaseClient.sql("""
+                        SELECT o.id AS order_id, o.fk_user_id, o.order_date, o.status, o.total_price, o.item_count,
+                               oi.id AS item_id, oi.quantity,
+                               p.id AS product_id, p.name, p.description, p.price
+                        FROM (SELECT *
+                              FROM e_store.order
+                              WHERE fk_user_id = :user_id AND id < :before
+                              ORDER BY id DESC
+                              LIMIT :limit) o
+                        LEFT JOIN e_store.order_item oi ON oi.fk_order_id = o.id
+                        LEFT JOIN e_store.product p ON p.id = oi.fk_product_id
+                        ORDER BY o.id DESC, oi.id;
+                        """)
+                .bind("user_id", userId)
+                .bind("before", before == null ? Long.MAX_VALUE : before);
+        spec = (limit == null) ? spec.bindNull("limit", Integer.class) : spec.bind("limit", limit);
+
+        return spec.map((row, metadata) -> Tuples.of(toOrder(row), Optional.ofNullable(row.get("item_id", Long.class))
+                        .map(itemId -> OrderItemCustomRepositoryImpl.toOrderItemWithProduct(row))))
+                .all()
+                // Rows of one Order are adjacent, so they can be folded without collecting the whole history
+                .bufferUntilChanged(orderRow -> orderRow.getT1().getId())
+                .map(orderRows -> Tuples.of(orderRows.get(0).getT1(), orderRows.stream()
+                        .flatMap(orderRow -> orderRow.getT2().stream())
+                        .toList()));
+    }
+
+    @Override
+    public Mono<Order> checkout(Long orderId, String username) {
+        return databaseClient.sql("""
+                        WITH total AS (
+                            SELECT SUM(oi.quantity * p.price) AS total_price, SUM(oi.quantity) AS item_count
+                            FROM e_store.order_item oi
+                            JOIN e_store.product p ON p.id = oi.fk_product_id
+                            WHERE oi.fk_order_id = :order_id
+                        ),
+                        accepted AS (
+                            UPDATE e_store.order o
+                            SET status = 'ACCEPTED', order_date = CURRENT_DATE,
+                                total_price = t.total_price, item_count = t.item_count
+                            FROM total t, e_store.user u
+                            WHERE o.id = :order_id AND o.status = 'CREATED' AND t.total_price > 0
+                              AND u.id = o.fk_user_id AND u.username = :username
+                            RETURNING o.id, o.fk_user_id, o.order_date, o.status, o.total_price, o.item_count
+                        ),
+                        cart AS (
+                            INSERT INTO e_store.order (fk_user_id, order_date, status)
+                            SELECT a.fk_user_id, CURRENT_DATE, 'CREATED'
+                            FROM accepted a
+                        )
+                        SELECT a.id AS order_id, a.fk_user_id, a.order_date, a.status, a.total_price, a.item_count
+                        FROM accepted a;
+                        """)
+                .bind("order_id", orderId)
+                .bind("username", username)
+                .map((row, metadata) -> toOrder(row))
+                .one();
+    }
+
+    @Override
+    public Mono<Long> refreshTotalsByOrderId(Long orderId) {
+        return databaseClient.sql("""
+                        UPDATE e_store.order o
+                        SET (total_price, item_count) = (%s)
+                        WHERE o.id = :order_id;
+                        """.formatted(ORDER_TOTALS))
+                .bind("order_id", orderId)
+                .bindNull("excluded_product_id", Long.class)
+                .fetch()
+                .rowsUpdated();
+    }
+
+    @Override
+    public Mono<Long> refreshTotalsByProductId(Long productId) {
+        return refreshTotalsOfProductOrders(new Long[]{productId}, null);
+    }
+
+    @Override
+    public Mono<Long> refreshTotalsByProductIds(Collection<Long> productIds) {
+        if (productIds.isEmpty()) {
+            return Mono.just(0L);
+        }
+        return refreshTotalsOfProductOrders(productIds.toArray(Long[]::new), null);
+    }
+
+    @Override
+    public Mono<Long> refreshTotalsWithoutProduct(Long productId) {
+        return refreshTotalsOfProductOrders(new Long[]{productId}, productId);
+    }
+
+    @Override
+    public Mono<Long> refreshAllTotals() {
+        return databaseClient.sql("""
+                        SELECT id
+                        FROM e_store.order
+                        WHERE status = 'CREATED'
+                        ORDER BY id
+                        FOR UPDATE;
+                        """)
+                .fetch()
+                .all()
+                .then(databaseClient.sql("""
+                        UPDATE e_store.order o
+                        SET total_price = t.total_price, item_count = t.item_count
+                        FROM (SELECT c.id,
+                                     COALESCE(SUM(oi.quantity * p.price), 0) AS total_price,
+                                     COALESCE(SUM(oi.quantity), 0) AS item_count
+                              FROM e_store.order c
+                              LEFT JOIN e_store.order_item oi ON oi.fk_order_id = c.id
+                              LEFT JOIN e_store.product p ON p.id = oi.fk_product_id
+                              WHERE c.status = 'CREATED'
+                              GROUP BY c.id) t
+                        WHERE o.id = t.id
+                          AND (o.total_price, o.item_count) IS DISTINCT FROM (t.total_price, t.item_count);
+                        """)
+                        .fetch()
+                        .rowsUpdated());
+    }
+
+    //-----------------------------------
+    //         Private methods
+    //-----------------------------------
+
+    /**
+     * Recomputes the totals of the CREATED Orders containing the Products, the ACCEPTED totals are kept.
+     * The Orders are locked by a separate statement first, so the UPDATE snapshot sees the OrderItem writes
+     * committed while waiting for the locks.
+     *
+     * @param productIds        Product ids.
+     * @param excludedProductId the Product left out of the totals, null to count all the Products
+     */
+    private Mono<Long> refreshTotalsOfProductOrders(Long[] productIds, Long excludedProductId) {
+        var spec = databaseClient.sql("""
+                        UPDATE e_store.order o
+                        SET (total_price, item_count) = (%s)
+                        WHERE o.status = 'CREATED'
+                          AND o.id IN (SELECT fk_order_id FROM e_store.order_item WHERE fk_product_id = ANY(:product_ids));
+                        """.formatted(ORDER_TOTALS))
+                .bind("product_ids", productIds);
+        spec = (excludedProductId == null)
+                ? spec.bindNull("excluded_product_id", Long.class)
+                : spec.bind("excluded_product_id", excludedProductId);
+        return lockCreatedOrdersByProductIds(productIds)
+                .then(spec.fetch().rowsUpdated());
+    }
+
+    private Mono<Void> lockCreatedOrdersByProductIds(Long[] productIds) {
+        return databaseClient.sql("""
+                        SELECT o.id
+                        FROM e_store.order o
+                        WHERE o.status = 'CREATED'
+                          AND o.id IN (SELECT fk_order_id FROM e_store.order_item WHERE fk_product_id = ANY(:product_ids))
+                        ORDER BY o.id
+                        FOR UPDATE;
+                        """)
+                .bind("product_ids", productIds)
+                .fetch()
+                .all()
+                .then();
+    }
+
+    /**
+     * Maps the order columns of a joined row.
+     *
+     * @param row row with the order_id, fk_user_id, order_date, status, total_price and item_count columns
+     * @return Order
+     */
+    private static Order toOrder(Row row) {
+        return new Order(
+                row.get("order_id", Long.class),
+                row.get("fk_user_id", Long.class),
+                row.get("order_date", LocalDate.class),
+                OrderStatus.valueOf(row.get("status", String.class)),
+                row.get("total_price", BigDecimal.class),
+                row.get("item_count", Integer.class));
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.estore.repository;
+
+import com.estore.dto.request.OrderItemRequestDto;
+import com.estore.dto.response.OrderItemResponseDto;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * {@link OrderItemCustomRepository} is a fragment of {@link OrderItemRepository}
+ * for the join based reads and the set based writes which can't be expressed with derived queries.
+ *
+ * @author Dmytro Trotsenko on 7/10/23
+ */
+
+public interface OrderItemCustomRepository {
+
+    /**
+     * Finds all OrderItems of the Order together with their Products in one query.
+     *
+     * @param orderId Order id.
+     * @return OrderItemResponseDto objects with the related Product loaded
+     */
+    Flux<OrderItemResponseDto> findAllWithProductsByOrderId(Long orderId);
+
+    /**
+     * Finds all OrderItems of several Orders together with their Products in one query.
+     *
+     * @param orderIds Order ids.
+     * @return pairs of Order id and OrderItemResponseDto with the related Product loaded
+     */
+    Flux<Tuple2<Long, OrderItemResponseDto>> findAllWithProductsByOrderIdIn(Collection<Long> orderIds);
+
+    /**
+     * Adds the Product to the Order by one statement.
+     * A new OrderItem is inserted or the quantity is added to the existing OrderItem of the same Product.
+     *
+     * @param orderId   Order id.
+     * @param productId Product id.
+     * @param quantity  added quantity.
+     * @return saved OrderItemResponseDto with the related Product loaded
+     */
+    Mono<OrderItemResponseDto> upsertWithProduct(Long orderId, Long productId, Integer quantity);
+
+    /**
+     * Replaces the OrderItems of the Order by the requested ones in one statement.
+     * OrderItems of the Products absent in the request are deleted, new Products are inserted
+     * and only the changed quantities are updated, the position of a Product in the request doesn't matter.
+     *
+     * @param orderId    Order id.
+     * @param orderItems requested OrderItems with distinct Products.
+     * @return pair of the deleted and the inserted or updated rows count
+     */
+    Mono<Tuple2<Long, Long>> replaceAllByOrderId(Long orderId, List<OrderItemRequestDto> orderItems);
+
+}
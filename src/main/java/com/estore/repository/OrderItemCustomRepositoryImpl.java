@@ -0,0 +1,132 @@
+package com.estore.repository;
+
+import com.estore.dto.request.OrderItemRequestDto;
+import com.estore.dto.response.OrderItemResponseDto;
+import com.estore.model.Product;
+import io.r2dbc.spi.Row;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * {@link OrderItemCustomRepositoryImpl} is the {@link DatabaseClient} based implementation
+ * of {@link OrderItemCustomRepository}.
+ *
+ * @author Dmytro Trotsenko on 7/10/23
+ */
+
+@RequiredArgsConstructor
+public class OrderItemCustomRepositoryImpl implements OrderItemCustomRepository {
+
+    private final DatabaseClient databaseClient;
+
+    @Override
+    public Flux<OrderItemResponseDto> findAllWithProductsByOrderId(Long orderId) {
+        return databaseClient.sql("""
+                        SELECT oi.id AS item_id, oi.quantity,
+                               p.id AS product_id, p.name, p.description, p.price
+                        FROM e_store.order_item oi
+                        JOIN e_store.product p ON p.id = oi.fk_product_id
+                        WHERE oi.fk_order_id = :order_id
+                        ORDER BY oi.id;
+                        """)
+                .bind("order_id", orderId)
+                .map((row, metadata) -> toOrderItemWithProduct(row))
+                .all();
+    }
+
+    @Override
+    public Flux<Tuple2<Long, OrderItemResponseDto>> findAllWithProductsByOrderIdIn(Collection<Long> orderIds) {
+        if (orderIds.isEmpty()) {
+            return Flux.empty();
+        }
+        return databaseClient.sql("""
+                        SELECT oi.fk_order_id AS order_id, oi.id AS item_id, oi.quantity,
+                               p.id AS product_id, p.name, p.description, p.price
+                        FROM e_store.order_item oi
+                        JOIN e_store.product p ON p.id = oi.fk_product_id
+                        WHERE oi.fk_order_id = ANY(:order_ids)
+                        ORDER BY oi.id;
+                        """)
+                .bind("order_ids", orderIds.toArray(Long[]::new))
+                .map((row, metadata) -> Tuples.of(row.get("order_id", Long.class), toOrderItemWithProduct(row)))
+                .all();
+    }
+
+    @Override
+    public Mono<OrderItemResponseDto> upsertWithProduct(Long orderId, Long productId, Integer quantity) {
+        return databaseClient.sql("""
+                        WITH upserted AS (
+                            INSERT INTO e_store.order_item AS oi (fk_order_id, fk_product_id, quantity)
+                            VALUES (:order_id, :product_id, :quantity)
+                            ON CONFLICT (fk_order_id, fk_product_id)
+                            DO UPDATE SET quantity = oi.quantity + EXCLUDED.quantity
+                            RETURNING oi.id, oi.fk_product_id, oi.quantity
+                        )
+                        SELECT u.id AS item_id, u.quantity,
+                               p.id AS product_id, p.name, p.description, p.price
+                        FROM upserted u
+                        JOIN e_store.product p ON p.id = u.fk_product_id;
+                        """)
+                .bind("order_id", orderId)
+                .bind("product_id", productId)
+                .bind("quantity", quantity)
+                .map((row, metadata) -> toOrderItemWithProduct(row))
+                .one();
+    }
+
+    @Override
+    public Mono<Tuple2<Long, Long>> replaceAllByOrderId(Long orderId, List<OrderItemRequestDto> orderItems) {
+        Long[] productIds = orderItems.stream().map(OrderItemRequestDto::getProductId).toArray(Long[]::new);
+        Integer[] quantities = orderItems.stream().map(OrderItemRequestDto::getQuantity).toArray(Integer[]::new);
+        return databaseClient.sql("""
+                        WITH requested AS (
+                            SELECT * FROM unnest(:product_ids::bigint[], :quantities::int[]) AS r(product_id, quantity)
+                        ),
+                        deleted AS (
+                            DELETE FROM e_store.order_item oi
+                            WHERE oi.fk_order_id = :order_id
+                              AND NOT EXISTS (SELECT 1 FROM requested r WHERE r.product_id = oi.fk_product_id)
+                            RETURNING oi.id
+                        ),
+                        upserted AS (
+                            INSERT INTO e_store.order_item AS oi (fk_order_id, fk_product_id, quantity)
+                            SELECT :order_id, r.product_id, r.quantity FROM requested r
+                            ON CONFLICT (fk_order_id, fk_product_id)
+                            DO UPDATE SET quantity = EXCLUDED.quantity
+                            WHERE oi.quantity IS DISTINCT FROM EXCLUDED.quantity
+                            RETURNING oi.id
+                        )
+                        SELECT (SELECT COUNT(*) FROM deleted) AS deleted,
+                               (SELECT COUNT(*) FROM upserted) AS upserted;
+                        """)
+                .bind("order_id", orderId)
+                .bind("product_ids", productIds)
+                .bind("quantities", quantities)
+                .map((row, metadata) -> Tuples.of(row.get("deleted", Long.class), row.get("upserted", Long.class)))
+                .one();
+    }
+
+    /**
+     * Maps a joined order_item and product row.
+     *
+     * @param row row with the item_id, quantity, product_id, name, description and price columns
+     * @return OrderItemResponseDto with the related Product
+     */
+    static OrderItemResponseDto toOrderItemWithProduct(Row row) {
+        var product = new Product(
+                row.get("product_id", Long.class),
+                row.get("name", String.class),
+                row.get("description", String.class),
+                row.get("price", BigDecimal.class));
+        return new OrderItemResponseDto(row.get("item_id", Long.class), product, row.get("quantity", Integer.class));
+    }
+
+}
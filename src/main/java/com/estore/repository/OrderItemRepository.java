@@ -15,7 +15,7 @@ import reactor.core.publisher.Mono;
  */
 
 @Repository
-public interface OrderItemRepository extends ReactiveCrudRepository<OrderItem, Long> {
+public interface OrderItemRepository extends ReactiveCrudRepository<OrderItem, Long>, OrderItemCustomRepository {
 
     Flux<OrderItem> findAllByOrderId(Long id);
 
@@ -1,11 +1,13 @@
 package com.estore.repository;
 
+import com.estore.dto.response.OrderSummaryDto;
 import com.estore.model.Order;
 import com.estore.model.OrderStatus;
 import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 
 /**
@@ -15,10 +17,46 @@ import reactor.core.publisher.Flux;
  */
 
 @Repository
-public interface OrderRepository extends ReactiveCrudRepository<Order, Long> {
+public interface OrderRepository extends ReactiveCrudRepository<Order, Long>, OrderCustomRepository {
 
     Flux<Order> findAllOrderByUserId(Long id);
 
+    @Query("""
+            SELECT *
+            FROM e_store.order
+            WHERE id > :after
+            ORDER BY id
+            LIMIT :limit;
+            """)
+    Flux<Order> findAllAfterId(Long after, int limit);
+
+    @Query("""
+            SELECT *
+            FROM e_store.order
+            WHERE fk_user_id = :userId AND id > :after
+            ORDER BY id
+            LIMIT :limit;
+            """)
+    Flux<Order> findAllByUserIdAfterId(Long userId, Long after, int limit);
+
+    @Query("""
+            SELECT id, fk_user_id AS user_id, order_date AS date, status, total_price, item_count
+            FROM e_store.order
+            WHERE id > :after
+            ORDER BY id
+            LIMIT :limit;
+            """)
+    Flux<OrderSummaryDto> findSummariesAfterId(Long after, int limit);
+
+    @Query("""
+            SELECT id, fk_user_id AS user_id, order_date AS date, status, total_price, item_count
+            FROM e_store.order
+            WHERE fk_user_id = :userId AND id > :after
+            ORDER BY id
+            LIMIT :limit;
+            """)
+    Flux<OrderSummaryDto> findSummariesByUserIdAfterId(Long userId, Long after, int limit);
+
         @Query("""
                 SELECT *
                 FROM e_store.order
@@ -26,4 +64,18 @@ public interface OrderRepository extends ReactiveCrudRepository<Order, Long> {
                 AND fk_user_id = (SELECT id FROM e_store.user WHERE username = :username)
                 """)
     Flux<Order> findAllOrderByUsernameAndStatus(String username, OrderStatus status);
+
+    /**
+     * Locks the Order row until the end of the transaction, taken before the OrderItem writes of the Order.
+     *
+     * @param id Order id.
+     * @return the Order id, empty if the Order doesn't exist
+     */
+    @Query("""
+            SELECT id
+            FROM e_store.order
+            WHERE id = :id
+            FOR UPDATE;
+            """)
+    Mono<Long> lockById(Long id);
 }
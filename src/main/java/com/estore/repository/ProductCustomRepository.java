@@ -0,0 +1,29 @@
+package com.estore.repository;
+
+import com.estore.dto.request.ProductRequestDto;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * {@link ProductCustomRepository} is a fragment of {@link ProductRepository}
+ * for the bulk writes which can't be expressed with derived queries.
+ *
+ * @author Dmytro Trotsenko on 8/3/23
+ */
+
+public interface ProductCustomRepository {
+
+    /**
+     * Saves the Products by one statement.
+     * A Product with an existing name is updated, the others are inserted, the unique name makes it safe
+     * against a concurrent import or creation of the same name.
+     *
+     * @param products products with distinct names
+     * @return pair of the inserted rows count and the ids of the updated Products
+     */
+    Mono<Tuple2<Long, List<Long>>> upsertAllByName(Collection<ProductRequestDto> products);
+
+}
@@ -0,0 +1,53 @@
+package com.estore.repository;
+
+import com.estore.dto.request.ProductRequestDto;
+import lombok.RequiredArgsConstructor;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * {@link ProductCustomRepositoryImpl} is the {@link DatabaseClient} based implementation
+ * of {@link ProductCustomRepository}.
+ *
+ * @author Dmytro Trotsenko on 8/3/23
+ */
+
+@RequiredArgsConstructor
+public class ProductCustomRepositoryImpl implements ProductCustomRepository {
+
+    private final DatabaseClient databaseClient;
+
+    @Override
+    public Mono<Tuple2<Long, List<Long>>> upsertAllByName(Collection<ProductRequestDto> products) {
+        if (products.isEmpty()) {
+            return Mono.just(Tuples.of(0L, List.of()));
+        }
+        // The rows are passed as column arrays, so the statement text doesn't depend on the batch size
+        return databaseClient.sql("""
+                        WITH upserted AS (
+                            INSERT INTO e_store.product AS p (name, description, price)
+                            SELECT i.name, i.description, i.price
+                            FROM unnest(:names::varchar[], :descriptions::varchar[], :prices::numeric[])
+                                AS i(name, description, price)
+                            ON CONFLICT (name)
+                            DO UPDATE SET description = EXCLUDED.description, price = EXCLUDED.price
+                            -- xmax of the returned row version is 0 only for an inserted row
+                            RETURNING p.id, p.xmax = 0 AS inserted
+                        )
+                        SELECT COUNT(*) FILTER (WHERE inserted) AS inserted,
+                               ARRAY(SELECT id::bigint FROM upserted WHERE NOT inserted) AS updated_ids
+                        FROM upserted;
+                        """)
+                .bind("names", products.stream().map(ProductRequestDto::getName).toArray(String[]::new))
+                .bind("descriptions", products.stream().map(ProductRequestDto::getDescription).toArray(String[]::new))
+                .bind("prices", products.stream().map(product -> product.getPrice().toPlainString()).toArray(String[]::new))
+                .map((row, metadata) -> Tuples.of(row.get("inserted", Long.class), List.of(row.get("updated_ids", Long[].class))))
+                .one();
+    }
+
+}
@@ -18,19 +18,34 @@ import java.util.List;
  */
 
 @Repository
-public interface ProductRepository extends ReactiveCrudRepository<Product, Long> {
+public interface ProductRepository extends ReactiveCrudRepository<Product, Long>, ProductCustomRepository {
 
     Mono<Product> findByName(String name);
 
-    Flux<Product> findByNameContaining(String name);
+    Flux<Product> findAllByOrderById();
 
+    /**
+     * @param pattern the query with the LIKE wildcards escaped, matched as a substring
+     * @param query   the raw query, ranks the matches by the trigram similarity
+     * @param limit   max number of found products
+     */
     @Query("""
             SELECT *
-            FROM e_store.product p
-            JOIN e_store.order_item oi ON p.id = oi.fk_product_id
-            WHERE oi.fk_order_id = :order_id;
+            FROM e_store.product
+            WHERE name ILIKE '%' || :pattern || '%' OR description ILIKE '%' || :pattern || '%'
+            ORDER BY similarity(name, :query) DESC, similarity(description, :query) DESC, id
+            LIMIT :limit;
+            """)
+    Flux<Product> search(String pattern, String query, int limit);
+
+    @Query("""
+            SELECT *
+            FROM e_store.product
+            WHERE id > :after
+            ORDER BY id
+            LIMIT :limit;
             """)
-    Flux<Product> findProductsByOrderId(Long orderId);
+    Flux<Product> findAllAfterId(Long after, int limit);
 
     @Query("""
             SELECT COUNT(*) = :list_size
@@ -0,0 +1,63 @@
+package com.estore.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.r2dbc.core.R2dbcEntityTemplate;
+import org.springframework.data.relational.core.mapping.RelationalPersistentEntity;
+import org.springframework.data.relational.core.mapping.RelationalPersistentProperty;
+import org.springframework.data.relational.core.query.Criteria;
+import org.springframework.data.relational.core.query.Query;
+import org.springframework.data.relational.core.sql.SqlIdentifier;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * {@link SparseColumnsTemplate} reads the keyset pages of an entity selecting only the columns of the requested properties.
+ * <p>The id column is always selected for the cursor, the properties which are not selected stay null.
+ * The requested names which are not the properties of the entity are ignored.</p>
+ *
+ * @author Dmytro Trotsenko on 8/8/23
+ */
+
+@Component
+@RequiredArgsConstructor
+public class SparseColumnsTemplate {
+
+    private final R2dbcEntityTemplate template;
+
+    /**
+     * Find a page of entities ordered by id
+     *
+     * @param entityClass entity class
+     * @param after       keyset cursor, only entities with id greater than it are returned
+     * @param limit       max number of entities in the page
+     * @param properties  names of the entity properties to select
+     * @return entities with only the id and the requested properties set
+     */
+    public <T> Flux<T> findAllAfterId(Class<T> entityClass, Long after, int limit, Collection<String> properties) {
+        RelationalPersistentEntity<?> entity = template.getConverter().getMappingContext()
+                .getRequiredPersistentEntity(entityClass);
+        RelationalPersistentProperty idProperty = entity.getRequiredIdProperty();
+
+        Set<SqlIdentifier> columns = new LinkedHashSet<>();
+        columns.add(idProperty.getColumnName());
+        properties.stream()
+                .map(entity::getPersistentProperty)
+                .filter(Objects::nonNull)
+                .map(RelationalPersistentProperty::getColumnName)
+                .forEach(columns::add);
+
+        return template.select(entityClass)
+                .matching(Query.query(Criteria.where(idProperty.getName()).greaterThan(after))
+                        .columns(columns.toArray(SqlIdentifier[]::new))
+                        .sort(Sort.by(idProperty.getName()))
+                        .limit(limit))
+                .all();
+    }
+
+}
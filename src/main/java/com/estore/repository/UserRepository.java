@@ -1,8 +1,10 @@
 package com.estore.repository;
 
 import com.estore.model.UserEntity;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 /**
@@ -16,4 +18,13 @@ public interface UserRepository extends ReactiveCrudRepository<UserEntity, Long>
 
     Mono<UserEntity> findByUsername(String username);
 
+    @Query("""
+            SELECT *
+            FROM e_store.user
+            WHERE id > :after
+            ORDER BY id
+            LIMIT :limit;
+            """)
+    Flux<UserEntity> findAllAfterId(Long after, int limit);
+
 }
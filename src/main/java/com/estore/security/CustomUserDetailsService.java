@@ -1,5 +1,6 @@
 package com.estore.security;
 
+import com.estore.cache.UserCache;
 import com.estore.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -25,6 +26,7 @@ import java.util.Set;
 public class CustomUserDetailsService implements ReactiveUserDetailsService {
 
     private final UserRepository userRepository;
+    private final UserCache userCache;
     @Value("${superuser.username}")
     private String superuserUsername;
     @Value("${superuser.password}")
@@ -42,7 +44,7 @@ public class CustomUserDetailsService implements ReactiveUserDetailsService {
             return getSuperuser(superuserUsername, superuserPassword, superuserRole);
         }
 
-        return userRepository.findByUsername(username)
+        return userCache.get(username, userRepository::findByUsername)
                 .switchIfEmpty(Mono.error(new UsernameNotFoundException("username=" + username + " wasn't found")))
                 .doOnError(user -> log.error("username={} wasn't found", username))
                 .map(userEntity -> {
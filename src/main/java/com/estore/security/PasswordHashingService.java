@@ -0,0 +1,38 @@
+package com.estore.security;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+/**
+ * {@link PasswordHashingService} hashes passwords on the bounded password hashing scheduler,
+ * so BCrypt never blocks the event loop.
+ *
+ * @author Dmytro Trotsenko on 7/26/23
+ */
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class PasswordHashingService {
+
+    private final PasswordEncoder passwordEncoder;
+    private final Scheduler passwordHashingScheduler;
+
+    /**
+     * Hash the raw password
+     *
+     * @param rawPassword password to be hashed
+     * @return encoded password
+     * @throws java.util.concurrent.RejectedExecutionException the hashing queue is full
+     */
+    public Mono<String> encode(String rawPassword) {
+        return Mono.fromCallable(() -> passwordEncoder.encode(rawPassword))
+                .subscribeOn(passwordHashingScheduler)
+                .doOnError(ex -> log.warn("Password hashing failed: {}", ex.getMessage()));
+    }
+
+}
@@ -1,9 +1,15 @@
 package com.estore.security;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
 import org.springframework.http.HttpMethod;
+import org.springframework.security.authentication.AuthenticationServiceException;
 import org.springframework.security.authentication.ReactiveAuthenticationManager;
 import org.springframework.security.authentication.UserDetailsRepositoryReactiveAuthenticationManager;
 import org.springframework.security.config.annotation.web.reactive.EnableWebFluxSecurity;
@@ -13,8 +19,13 @@ import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.server.DefaultServerRedirectStrategy;
 import org.springframework.security.web.server.SecurityWebFilterChain;
+import org.springframework.security.web.server.util.matcher.ServerWebExchangeMatchers;
+import reactor.core.observability.micrometer.Micrometer;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
 
 import java.net.URI;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * {@link WebSecurityConfig}
@@ -41,11 +52,52 @@ public class WebSecurityConfig {
         return new BCryptPasswordEncoder();
     }
 
+    /**
+     * Scheduler of the BCrypt hashing and matching, which must not run on the event loop.
+     * The threads and the queue of waiting tasks are bounded, a task over the queue capacity is rejected.
+     *
+     * @return scheduler timed by the estore.password.hashing meters
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler passwordHashingScheduler(@Value("${estore.security.password-hashing.threads}") int threads,
+                                              @Value("${estore.security.password-hashing.queue-capacity}") int queueCapacity,
+                                              MeterRegistry meterRegistry) {
+        Scheduler scheduler = Schedulers.newBoundedElastic(threads, queueCapacity, "password-hashing");
+        return Micrometer.timedScheduler(scheduler, meterRegistry, "estore.password.hashing", Tags.empty());
+    }
+
+    /**
+     * Authentication manager verifying the password on the password hashing scheduler.
+     * The login fails with an authentication error if the hashing queue is full.
+     */
     @Bean
-    public ReactiveAuthenticationManager authenticationManager() {
+    public ReactiveAuthenticationManager authenticationManager(Scheduler passwordHashingScheduler) {
         var userAuthManager = new UserDetailsRepositoryReactiveAuthenticationManager(reactiveUserDetailsService);
         userAuthManager.setPasswordEncoder(passwordEncoder());
-        return userAuthManager;
+        userAuthManager.setScheduler(passwordHashingScheduler);
+        return authentication -> userAuthManager.authenticate(authentication)
+                .onErrorMap(RejectedExecutionException.class,
+                        ex -> new AuthenticationServiceException("Too many logins, try again later", ex));
+    }
+
+    /**
+     * Security of the actuator endpoints, checked before {@link #securityWebFilterChain}.
+     * Only the health is public, the metrics scraper authenticates as an ADMIN by the HTTP Basic.
+     */
+    @Bean
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public SecurityWebFilterChain actuatorSecurityWebFilterChain(ServerHttpSecurity http, ReactiveAuthenticationManager authenticationManager) {
+        return http
+                .securityMatcher(ServerWebExchangeMatchers.pathMatchers("/actuator/**"))
+                .authenticationManager(authenticationManager)
+                .authorizeExchange()
+                .pathMatchers("/actuator/health").permitAll()
+                .anyExchange().hasAuthority("ADMIN")
+                .and()
+                .httpBasic()
+                .and()
+                .csrf().disable()
+                .build();
     }
 
     @Bean
@@ -55,7 +107,7 @@ public class WebSecurityConfig {
                 .authorizeExchange()
                 .pathMatchers(WHITELIST_URLS).permitAll()
                 .pathMatchers("/login/**", "/registration").permitAll()
-                .pathMatchers("/admin/**", "/catalog/addProduct/**").hasAuthority("ADMIN")
+                .pathMatchers("/admin/**", "/catalog/addProduct/**", "/products/cache/**", "/products/import", "/products/export").hasAuthority("ADMIN")
                 .pathMatchers(HttpMethod.DELETE, "/products/**").hasAuthority("ADMIN")
                 .pathMatchers(HttpMethod.PUT, "/products/**").hasAuthority("ADMIN")
                 .anyExchange().authenticated()
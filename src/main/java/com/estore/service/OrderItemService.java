@@ -3,18 +3,18 @@ package com.estore.service;
 import com.estore.dto.request.OrderItemRequestDto;
 import com.estore.dto.response.OrderItemResponseDto;
 import com.estore.exception.ModelNotFoundException;
-import com.estore.mapper.OrderItemMapper;
-import com.estore.model.OrderItem;
 import com.estore.repository.OrderItemRepository;
-import com.estore.repository.ProductRepository;
+import com.estore.repository.OrderRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
 
-import java.util.Objects;
+import java.util.Collection;
 
 /**
  * {@link OrderItemService}
@@ -28,69 +28,55 @@ import java.util.Objects;
 public class OrderItemService {
 
     private final OrderItemRepository orderItemRepository;
-
-    private final ProductRepository productRepository;
-
-    private final OrderItemMapper orderItemMapper;
+    private final OrderRepository orderRepository;
 
     /**
      * Finds all OrderItems and Products by Order id.
+     * OrderItems and their Products are loaded by the one joined query.
      *
      * @param id Order id.
      * @return OrderItemWithProductResponseDto objects containing order item and product information
      */
 
     public Flux<OrderItemResponseDto> findAllOrderItemsWithProductsByOrderId(Long id) {
-        return orderItemRepository.findAllByOrderId(id)
-                .flatMap(orderItem -> productRepository.findProductsByOrderId(id)
-                        .filter(product -> orderItem.getProductId().equals(product.getId()))
-                        .map(product -> {
-                            var orderItemDto = orderItemMapper.toDto(orderItem);
-                            orderItemDto.setProduct(product);
-                            return orderItemDto;
-                        }));
+        return orderItemRepository.findAllWithProductsByOrderId(id);
+    }
+
+    /**
+     * Finds all OrderItems and Products of several Orders by one query.
+     *
+     * @param ids Order ids.
+     * @return pairs of Order id and OrderItemResponseDto containing order item and product information
+     */
+    public Flux<Tuple2<Long, OrderItemResponseDto>> findAllOrderItemsWithProductsByOrderIds(Collection<Long> ids) {
+        return orderItemRepository.findAllWithProductsByOrderIdIn(ids);
     }
 
     /**
      * Add a product to the order by order id.
+     * The order item is inserted or its quantity is summarized by one atomic upsert,
+     * which also returns the related product, then the totals of the order are recomputed.
+     * The order is locked first, so the concurrent additions to it are serialized.
      *
      * @param orderId             Order id.
      * @param orderItemRequestDto The product information for add to the order.
      * @return Added OrderItemResponseDto.
+     * @throws ModelNotFoundException If the order or product is not found.
      */
     @Transactional
     public Mono<OrderItemResponseDto> addProductByOrderId(Long orderId, OrderItemRequestDto orderItemRequestDto) {
         log.info("Start to addProduct {}", orderItemRequestDto);
 
-        return checkExistOrderAndProduct(orderId, orderItemRequestDto.getProductId())
-                .then(orderItemRepository.findAllByOrderId(orderId)
-                        .filter(orderItem -> Objects.equals(orderItem.getProductId(), orderItemRequestDto.getProductId()))
-                        .last(new OrderItem())
-                        .flatMap(existingOrderItem -> {
-                            OrderItem orderItem = orderItemMapper.toModel(orderItemRequestDto);
-                            orderItem.setOrderId(orderId);
-
-                            //Updating product and summarizing quantity
-                            if (existingOrderItem.getProductId() != null) {
-                                orderItem.setId(existingOrderItem.getId());
-                                orderItem.setQuantity(existingOrderItem.getQuantity() + orderItemRequestDto.getQuantity());
-                                log.info("Updating product and summarizing quantity existingQuantity={} + addedQuantity={}",
-                                        existingOrderItem.getQuantity(), orderItemRequestDto.getQuantity());
-                            }
-
-                            return orderItemRepository.save(orderItem)
-                                    .flatMap(savedOrderItem -> productRepository.findById(savedOrderItem.getProductId())
-                                            .map(product -> {
-                                                var orderItemWithProduct = orderItemMapper.toDto(savedOrderItem);
-                                                orderItemWithProduct.setProduct(product);
-                                                return orderItemWithProduct;
-                                            }))
-                                    .doOnSuccess(savedOrderItem -> log.info("Product has been added"));
-                        }));
+        return orderRepository.lockById(orderId)
+                .then(orderItemRepository.upsertWithProduct(orderId, orderItemRequestDto.getProductId(), orderItemRequestDto.getQuantity()))
+                .onErrorMap(DataIntegrityViolationException.class, ex -> new ModelNotFoundException("Order or Product not found", ex))
+                .doOnError(error -> log.info("Order or Product not found"))
+                .flatMap(savedOrderItem -> orderRepository.refreshTotalsByOrderId(orderId).thenReturn(savedOrderItem))
+                .doOnSuccess(savedOrderItem -> log.info("Product has been added, quantity={}", savedOrderItem.getQuantity()));
     }
 
     /**
-     * Remove a product from the order by order id and product id.
+     * Remove a product from the order by order id and product id and recompute the totals of the order.
      *
      * @param orderId order id
      * @param productId product id
@@ -98,8 +84,11 @@ public class OrderItemService {
     @Transactional
     public Mono<Void> removeProductFromOrderById(Long orderId, Long productId) {
         log.info("Start to remove Product id={} from Order id={}", productId, orderId);
-        return checkExistOrderAndProduct(orderId, productId)
+        return orderRepository.lockById(orderId)
+                .then(checkExistOrderAndProduct(orderId, productId))
                 .then(orderItemRepository.deleteOrderItemByOrderIdAndProductId(orderId,productId))
+                .then(orderRepository.refreshTotalsByOrderId(orderId))
+                .then()
                 .doOnSuccess(res -> log.info("Product id={} has been removed from Order id={}", productId, orderId));
     }
 
@@ -2,11 +2,12 @@ package com.estore.service;
 
 import com.estore.dto.request.OrderItemRequestDto;
 import com.estore.dto.request.OrderRequestDto;
+import com.estore.dto.response.OrderItemResponseDto;
 import com.estore.dto.response.OrderResponseDto;
+import com.estore.dto.response.OrderSummaryDto;
 import com.estore.exception.ModelNotFoundException;
 import com.estore.mapper.OrderMapper;
 import com.estore.model.Order;
-import com.estore.model.OrderItem;
 import com.estore.model.OrderStatus;
 import com.estore.repository.OrderItemRepository;
 import com.estore.repository.OrderRepository;
@@ -16,13 +17,12 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
 
-import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.List;
-import java.util.stream.IntStream;
+import java.util.stream.Collectors;
 
-import static com.estore.model.OrderStatus.ACCEPTED;
 import static com.estore.model.OrderStatus.CREATED;
 
 /**
@@ -42,6 +42,8 @@ public class OrderService {
     private final ProductService productService;
     private final OrderMapper orderMapper;
 
+    private static final int RELATIONS_BATCH_SIZE = 100;
+
     /**
      * Create a new empty Order
      *
@@ -50,28 +52,30 @@ public class OrderService {
     @Transactional
     public Mono<OrderResponseDto> create(Long userId) {
         log.info("Start to create order");
-        return orderRepository.save(new Order(null, userId, LocalDate.now(), CREATED))
+        return orderRepository.save(new Order(null, userId, LocalDate.now(), CREATED, null, null))
                 .map(orderMapper::toDto)
                 .doOnSuccess(o -> log.info("Order id={} have been CREATED", o.getId()));
     }
 
     /**
-     * Accept order for payment and create new Order
+     * Accept order for payment and create new Order.
+     * The total price is recomputed from the current Product prices and the status is switched
+     * only from CREATED, so a repeated submit of the same order is rejected.
      *
-     * @return the updated order with new status ACCEPTED
+     * @param orderId  order id
+     * @param username username of the owner of the order
+     * @return the updated order with new status ACCEPTED and its total price
+     * @throws ModelNotFoundException If the order is not found, belongs to another user, is empty or is already ACCEPTED.
      */
     @Transactional
-    public Mono<OrderResponseDto> accept(OrderResponseDto orderDto) {
-        log.info("Start to accept order {}", orderDto);
-        if (orderDto.getTotalPrice().equals(BigDecimal.ZERO) || orderDto.getStatus() == ACCEPTED) {
-            throw new ModelNotFoundException("No products have been added to the order or order status is already ACCEPTED");
-        }
-        Order order = orderMapper.toModel(orderDto);
-        order.setStatus(ACCEPTED);
-        order.setDate(LocalDate.now());
-        return create(orderDto.getUserId())
-                .then(orderRepository.save(order))
+    public Mono<OrderResponseDto> accept(Long orderId, String username) {
+        log.info("Start to accept Order id={}", orderId);
+        // The checkout snapshot is taken after the lock, so it sees the items added while waiting for it
+        return orderRepository.lockById(orderId)
+                .then(orderRepository.checkout(orderId, username))
                 .map(orderMapper::toDto)
+                .switchIfEmpty(Mono.error(new ModelNotFoundException(
+                        "Order id=" + orderId + " wasn't found in your cart, has no products or is already ACCEPTED")))
                 .doOnSuccess(o -> log.info("Order id={} have been ACCEPTED", o.getId()));
     }
 
@@ -109,7 +113,7 @@ public class OrderService {
         log.info("Start to find order by id={}", id);
         return orderRepository.findById(id)
                 .switchIfEmpty(Mono.error(new ModelNotFoundException("Order id=" + id + " wasn't found")))
-                .doOnError(o -> log.info("Order id=" + id + " wasn't found"))
+                .doOnError(o -> log.info("Order id={} wasn't found", id))
                 .flatMap(this::loadOrderRelations)
                 .doOnSuccess(o -> log.info("Order id={} have been found", o.getId()));
     }
@@ -123,12 +127,12 @@ public class OrderService {
      * @throws ModelNotFoundException Orders whith status wasn't found for username
      */
     public Flux<OrderResponseDto> findAllOrderByUsernameAndStatus(String username, OrderStatus status) {
-        log.info("Start to find orders by username{} and status{}", username, status);
+        log.info("Start to find orders by username={} and status={}", username, status);
         return orderRepository.findAllOrderByUsernameAndStatus(username, status)
                 .switchIfEmpty(Mono.error(new ModelNotFoundException("Orders whith status=" + status + " wasn't found for username=" + username)))
-                .doOnError(o -> log.info("Orders whith status=" + status + " wasn't found for username=" + username))
-                .flatMap(this::loadOrderRelations)
-                .doOnSubscribe(o -> log.info("Orders by username{} and status{} have been found", username, status));
+                .doOnError(o -> log.info("Orders whith status={} wasn't found for username={}", status, username))
+                .transform(this::loadOrdersRelations)
+                .doOnSubscribe(o -> log.info("Orders by username={} and status={} have been found", username, status));
     }
 
     /**
@@ -139,10 +143,37 @@ public class OrderService {
     public Flux<OrderResponseDto> findAll() {
         log.info("Start to find all orders");
         return orderRepository.findAll()
-                .flatMap(this::loadOrderRelations)
+                .transform(this::loadOrdersRelations)
                 .doOnSubscribe(o -> log.info("All orders have been found"));
     }
 
+    /**
+     * Find a page of Orders ordered by id
+     *
+     * @param after keyset cursor, only orders with id greater than it are returned (from the first order if null)
+     * @param limit max number of orders in the page
+     * @return Find orders with the related products loaded
+     */
+    public Flux<OrderResponseDto> findAll(Long after, int limit) {
+        log.info("Start to find orders after id={} limit={}", after, limit);
+        return orderRepository.findAllAfterId(after == null ? 0L : after, limit)
+                .transform(this::loadOrdersRelations)
+                .doOnSubscribe(o -> log.info("Orders after id={} have been found", after));
+    }
+
+    /**
+     * Find a page of Order summaries ordered by id, the order items are not loaded
+     *
+     * @param after keyset cursor, only orders with id greater than it are returned (from the first order if null)
+     * @param limit max number of orders in the page
+     * @return Find orders with their stored totals
+     */
+    public Flux<OrderSummaryDto> findAllSummaries(Long after, int limit) {
+        log.info("Start to find order summaries after id={} limit={}", after, limit);
+        return orderRepository.findSummariesAfterId(after == null ? 0L : after, limit)
+                .doOnSubscribe(o -> log.info("Order summaries after id={} have been found", after));
+    }
+
     /**
      * Find all Orders by User id
      *
@@ -152,10 +183,55 @@ public class OrderService {
     public Flux<OrderResponseDto> findAllByUserId(Long userId) {
         log.info("Start to find all orders by userId={}", userId);
         return orderRepository.findAllOrderByUserId(userId)
-                .flatMap(this::loadOrderRelations)
+                .transform(this::loadOrdersRelations)
                 .doOnSubscribe(o -> log.info("All orders for username={} have been found", userId));
     }
 
+    /**
+     * Find a page of Orders by User id ordered by id
+     *
+     * @param userId user id
+     * @param after  keyset cursor, only orders with id greater than it are returned (from the first order if null)
+     * @param limit  max number of orders in the page
+     * @return Find orders by user id with the related products loaded
+     */
+    public Flux<OrderResponseDto> findAllByUserId(Long userId, Long after, int limit) {
+        log.info("Start to find orders by userId={} after id={} limit={}", userId, after, limit);
+        return orderRepository.findAllByUserIdAfterId(userId, after == null ? 0L : after, limit)
+                .transform(this::loadOrdersRelations)
+                .doOnSubscribe(o -> log.info("Orders for userId={} after id={} have been found", userId, after));
+    }
+
+    /**
+     * Find a page of Order summaries by User id ordered by id, the order items are not loaded
+     *
+     * @param userId user id
+     * @param after  keyset cursor, only orders with id greater than it are returned (from the first order if null)
+     * @param limit  max number of orders in the page
+     * @return Find orders by user id with their stored totals
+     */
+    public Flux<OrderSummaryDto> findAllSummariesByUserId(Long userId, Long after, int limit) {
+        log.info("Start to find order summaries by userId={} after id={} limit={}", userId, after, limit);
+        return orderRepository.findSummariesByUserIdAfterId(userId, after == null ? 0L : after, limit)
+                .doOnSubscribe(o -> log.info("Order summaries for userId={} after id={} have been found", userId, after));
+    }
+
+    /**
+     * Find the Orders history of the User, from the newest to the oldest Order.
+     * Orders, their items and products are loaded by one joined query.
+     *
+     * @param userId user id
+     * @param before cursor, only orders with id less than it are loaded (all orders if null)
+     * @param limit  max number of orders (unlimited if null)
+     * @return Find orders of the user with the related products loaded
+     */
+    public Flux<OrderResponseDto> findOrdersHistoryByUserId(Long userId, Long before, Integer limit) {
+        log.info("Start to find orders history by userId={} before={} limit={}", userId, before, limit);
+        return orderRepository.findOrdersHistoryByUserId(userId, before, limit)
+                .map(orderWithItems -> toDtoWithRelations(orderWithItems.getT1(), orderWithItems.getT2()))
+                .doOnSubscribe(o -> log.info("Orders history for userId={} have been found", userId));
+    }
+
     /**
      * Deletes order by id.
      * Also deletes all related order items.
@@ -188,6 +264,8 @@ public class OrderService {
 
     /**
      * Updates an existing order with new order items.
+     * The OrderItems are diffed against the current ones by Product in the database,
+     * so unchanged OrderItems are not rewritten.
      *
      * @param id              Order id.
      * @param orderRequestDto the new order with OrderItem list.
@@ -199,32 +277,20 @@ public class OrderService {
         List<OrderItemRequestDto> orderItemDtos = orderRequestDto.getProducts();
 
         return existsOrderById(id)
+                .then(orderRepository.lockById(id))
                 .then(existsProductsInList(orderItemDtos))
 
-                // Find the existing links to the Products
-                .then(orderItemRepository.findAllByOrderId(id).collectList())
-                .flatMap(currentOrderItems ->
-
-                        // Delete all Order Items which will not be updated
-                        orderItemRepository.deleteAll(getRemovedOrderItems(orderItemDtos, currentOrderItems))
-
-                                // Insert all Order Items which will be updated
-                                .thenMany(orderItemRepository.saveAll(getAddedOrderItems(id, orderItemDtos, currentOrderItems)))
+                // Delete, insert and update the links to the Products by one statement
+                .then(orderItemRepository.replaceAllByOrderId(id, orderItemDtos))
+                .doOnNext(counts -> log.info("OrderItems deleted={}, inserted or updated={}", counts.getT1(), counts.getT2()))
+                .then(orderRepository.refreshTotalsByOrderId(id))
 
-                                // Update the Order
-                                .then(saveOrderById(id, orderRequestDto))
-                                .flatMap(this::loadOrderRelations)
-                )
+                // Update the Order
+                .then(saveOrderById(id, orderRequestDto))
+                .flatMap(this::loadOrderRelations)
                 .doOnSuccess(o -> log.info("Order has been updated"));
     }
 
-    public BigDecimal getTotalPrice(OrderResponseDto order) {
-        return order.getOrderItems().stream()
-                .map(item -> item.getProduct().getPrice()
-                        .multiply(BigDecimal.valueOf(item.getQuantity())))
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-    }
-
     //-----------------------------------
     //         Private methods
     //-----------------------------------
@@ -237,70 +303,63 @@ public class OrderService {
      */
     private Mono<OrderResponseDto> loadOrderRelations(Order order) {
         return orderItemService.findAllOrderItemsWithProductsByOrderId(order.getId()).collectList()
-                .map(orderItems -> {
-                    var orderResponseDto = orderMapper.toDto(order);
-                    orderResponseDto.setOrderItems(orderItems);
-                    orderResponseDto.setTotalPrice(getTotalPrice(orderResponseDto));
-                    return orderResponseDto;
-                });
+                .map(orderItems -> toDtoWithRelations(order, orderItems));
     }
 
     /**
-     * Save only unique Order by id
+     * Load the products related to a stream of orders.
+     * Orders are collected in windows of {@link #RELATIONS_BATCH_SIZE} and the related products
+     * of every window are fetched by one query, the order of the source stream is kept.
      *
-     * @param id              order id
-     * @param orderRequestDto order to be saved
-     * @return the saved order
+     * @param orders Orders
+     * @return The orders with the loaded related products
      */
-    private Mono<Order> saveOrderById(Long id, OrderRequestDto orderRequestDto) {
-        return orderRepository.findById(id)
-                .doOnNext(order -> order.setDate(orderRequestDto.getDate()))
-                .flatMap(orderRepository::save);
+    private Flux<OrderResponseDto> loadOrdersRelations(Flux<Order> orders) {
+        return orders.buffer(RELATIONS_BATCH_SIZE)
+                .concatMap(this::loadOrdersRelations);
     }
 
     /**
-     * Get list of OrderItems for add relations entities from Order
+     * Load the products related to a window of orders by one query
      *
-     * @param id                order id
-     * @param orderItems        updated OrderItems
-     * @param currentOrderItems current OrderItems
-     * @return list for add OrderItems from repository
+     * @param orders window of Orders
+     * @return The orders with the loaded related products
      */
-    private List<OrderItem> getAddedOrderItems(Long id, List<OrderItemRequestDto> orderItems, List<OrderItem> currentOrderItems) {
-        List<OrderItem> addedOrderItems = IntStream.range(0, orderItems.size())
-                .mapToObj(i -> {
-                    OrderItem orderItem = new OrderItem();
-                    if (currentOrderItems.size() > i) {
-                        orderItem.setId(currentOrderItems.get(i).getId());
-                    }
-                    orderItem.setOrderId(id);
-                    orderItem.setProductId(orderItems.get(i).getProductId());
-                    orderItem.setQuantity(orderItems.get(i).getQuantity());
-                    return orderItem;
-                })
-                .filter(addedOrderItem -> !currentOrderItems.contains(addedOrderItem))
+    private Flux<OrderResponseDto> loadOrdersRelations(List<Order> orders) {
+        List<Long> orderIds = orders.stream()
+                .map(Order::getId)
                 .toList();
-
-        log.info("OrderItems list for updating {}", addedOrderItems);
-        return addedOrderItems;
+        return orderItemService.findAllOrderItemsWithProductsByOrderIds(orderIds)
+                .collect(Collectors.groupingBy(Tuple2::getT1, Collectors.mapping(Tuple2::getT2, Collectors.toList())))
+                .flatMapIterable(orderItemsByOrderId -> orders.stream()
+                        .map(order -> toDtoWithRelations(order, orderItemsByOrderId.getOrDefault(order.getId(), List.of())))
+                        .toList());
     }
 
     /**
-     * Get list of OrderItems for remove relations entities from Order
+     * Map an order with its already loaded order items
      *
-     * @param orderItems        updated OrderItems
-     * @param currentOrderItems current OrderItems
-     * @return list for remove OrderItems from repository
+     * @param order      Order
+     * @param orderItems related order items with products
+     * @return The order with the related products and its stored total price
      */
-    private static List<OrderItem> getRemovedOrderItems(List<OrderItemRequestDto> orderItems, List<OrderItem> currentOrderItems) {
-        int skippedOrderItems = Math.min(currentOrderItems.size(), orderItems.size());
-
-        List<OrderItem> removedOrderItems = currentOrderItems.stream()
-                .skip(skippedOrderItems)
-                .toList();
+    private OrderResponseDto toDtoWithRelations(Order order, List<OrderItemResponseDto> orderItems) {
+        var orderResponseDto = orderMapper.toDto(order);
+        orderResponseDto.setOrderItems(orderItems);
+        return orderResponseDto;
+    }
 
-        log.info("OrderItems list for deleting {}", removedOrderItems);
-        return removedOrderItems;
+    /**
+     * Save only unique Order by id
+     *
+     * @param id              order id
+     * @param orderRequestDto order to be saved
+     * @return the saved order
+     */
+    private Mono<Order> saveOrderById(Long id, OrderRequestDto orderRequestDto) {
+        return orderRepository.findById(id)
+                .doOnNext(order -> order.setDate(orderRequestDto.getDate()))
+                .flatMap(orderRepository::save);
     }
 
     /**
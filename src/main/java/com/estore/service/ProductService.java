@@ -1,19 +1,41 @@
 package com.estore.service;
 
+import com.estore.cache.ProductCache;
+import com.estore.dto.response.ProductImportResponseDto;
 import com.estore.dto.response.ProductResponseDto;
 import com.estore.dto.request.ProductRequestDto;
 import com.estore.exception.ModelNotFoundException;
 import com.estore.mapper.ProductMapper;
 import com.estore.model.Product;
+import com.estore.repository.OrderRepository;
 import com.estore.repository.ProductRepository;
+import com.estore.repository.SparseColumnsTemplate;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
 
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 /**
  * {@link ProductService}
@@ -27,7 +49,21 @@ import java.util.List;
 public class ProductService {
 
     private final ProductRepository productRepository;
+    private final OrderRepository orderRepository;
+    private final SparseColumnsTemplate sparseColumnsTemplate;
     private final ProductMapper productMapper;
+    private final ProductCache productCache;
+    private final TransactionalOperator transactionalOperator;
+    private final Validator validator;
+    private final ObjectMapper objectMapper;
+    @Value("${estore.product.import.batch-size}")
+    private int importBatchSize;
+    @Value("${estore.product.import.max-reported-errors}")
+    private int importMaxReportedErrors;
+
+    private static final String CSV_HEADER = "name,description,price";
+    public static final String CSV_EXPORT_HEADER = "id," + CSV_HEADER;
+    private static final int MAX_CSV_RECORD_LINES = 100;
 
     /**
      * Create new {@link Product} and save row with data in database
@@ -40,8 +76,11 @@ public class ProductService {
         log.info("Start to create product");
         return productRepository.findByName(productRequestDto.getName())
                 .flatMap(product -> Mono.error(new ModelNotFoundException("Product name=" + product.getName() + " already exists")))
-                .doOnError(ex -> log.error("Product name=" + productRequestDto.getName() + " already exists"))
+                .doOnError(ex -> log.error("Product name={} already exists", productRequestDto.getName()))
                 .switchIfEmpty(Mono.defer(() -> productRepository.save(productMapper.toModel(productRequestDto))
+                        // The name may be taken by a concurrent creation or import after the check
+                        .onErrorMap(DuplicateKeyException.class, ex -> new ModelNotFoundException(
+                                "Product name=" + productRequestDto.getName() + " already exists", ex))
                         .map(productMapper::toDto)))
                 .cast(ProductResponseDto.class)
                 .doOnSuccess(dto -> log.info("Product name={} has been created", productRequestDto.getName()));
@@ -54,15 +93,18 @@ public class ProductService {
      * @param productRequestDto object with data
      * @return ProductResponseDto
      */
-    @Transactional
     public Mono<ProductResponseDto> update(Long id, ProductRequestDto productRequestDto) {
         log.info("Start to update product id={}", id);
         Product product = productMapper.toModel(productRequestDto);
         product.setId(id);
         return productRepository.findById(id)
                 .switchIfEmpty(Mono.error(new ModelNotFoundException("Product id=" + id + " wasn't found")))
-                .doOnError(p -> log.warn("Product id=" + id + " wasn't found"))
+                .doOnError(p -> log.warn("Product id={} wasn't found", id))
                 .flatMap(p -> productRepository.save(product))
+                .flatMap(p -> orderRepository.refreshTotalsByProductId(id).thenReturn(p))
+                .as(transactionalOperator::transactional)
+                // Invalidated after the commit, so a concurrent read can't cache the old row again
+                .doOnSuccess(p -> productCache.invalidate(id))
                 .map(productMapper::toDto)
                 .doOnSuccess(p -> log.info("Product id={} have been updated", p.getId()));
     }
@@ -80,7 +122,39 @@ public class ProductService {
     }
 
     /**
-     * Find product by id
+     * Find a page of products ordered by id
+     *
+     * @param after keyset cursor, only products with id greater than it are returned (from the first product if null)
+     * @param limit max number of products in the page
+     * @return Flux<ProductResponseDto>
+     */
+    public Flux<ProductResponseDto> findAll(Long after, int limit) {
+        log.info("Start to find products after id={} limit={}", after, limit);
+        return productRepository.findAllAfterId(after == null ? 0L : after, limit)
+                .map(productMapper::toDto)
+                .doOnSubscribe(p -> log.info("Products after id={} have been found", after));
+    }
+
+    /**
+     * Find a page of products ordered by id selecting only the requested fields
+     *
+     * @param after  keyset cursor, only products with id greater than it are returned (from the first product if null)
+     * @param limit  max number of products in the page
+     * @param fields selected fields, all fields if empty
+     * @return Flux<ProductResponseDto> with only the id and the selected fields set
+     */
+    public Flux<ProductResponseDto> findAll(Long after, int limit, Set<String> fields) {
+        if (fields.isEmpty()) {
+            return findAll(after, limit);
+        }
+        log.info("Start to find products after id={} limit={} fields={}", after, limit, fields);
+        return sparseColumnsTemplate.findAllAfterId(Product.class, after == null ? 0L : after, limit, fields)
+                .map(productMapper::toDto)
+                .doOnSubscribe(p -> log.info("Products after id={} have been found", after));
+    }
+
+    /**
+     * Find product by id, the product cache is consulted first
      *
      * @param id product id
      * @return ProductResponseDto
@@ -88,51 +162,107 @@ public class ProductService {
      */
     public Mono<ProductResponseDto> findById(Long id) {
         log.info("Start to find product by id={}", id);
-        return productRepository.findById(id)
+        return productCache.get(id, productRepository::findById)
                 .switchIfEmpty(Mono.error(new ModelNotFoundException("Product id=" + id + " wasn't found")))
-                .doOnError(p -> log.warn("Product id=" + id + " wasn't found"))
+                .doOnError(p -> log.warn("Product id={} wasn't found", id))
                 .map(productMapper::toDto)
                 .doOnSuccess(p -> log.info("Product: {} have been found", p));
     }
 
     /**
-     * Find all products by containing name
+     * Search products containing the query in name or description (case-insensitive).
+     * The search is served by the trigram indexes, the best name matches go first.
      *
-     * @param name product containing name
+     * @param query part of product name or description
+     * @param limit max number of found products
      * @return ProductResponseDto
-     * @throws ModelNotFoundException Products containing name wasn't found
+     * @throws ModelNotFoundException Products containing query wasn't found
+     */
+    public Flux<ProductResponseDto> search(String query, int limit) {
+        log.info("Start to search products by query={} limit={}", query, limit);
+        // The LIKE escapes would skew the similarity, so the ranking gets the raw query
+        return productRepository.search(escapeLikePattern(query), query, limit)
+                .switchIfEmpty(Flux.error(new ModelNotFoundException("Products containing name=" + query + " wasn't found")))
+                .doOnError(p -> log.warn("Products containing name={} wasn't found", query))
+                .map(productMapper::toDto)
+                .doOnSubscribe(p -> log.info("Products by query={} have been found", query));
+    }
+
+    /**
+     * Find all products ordered by id for the streaming export
+     *
+     * @return Flux<ProductResponseDto>
      */
-    public Flux<ProductResponseDto> findByNameContaining(String name) {
-        log.info("Start to find all products containing name={}", name);
-        return productRepository.findByNameContaining(name)
-                .switchIfEmpty(Flux.error(new ModelNotFoundException("Products containing name=" + name + " wasn't found")))
-                .doOnError(p -> log.warn("Products containing name={} wasn't found", name))
+    public Flux<ProductResponseDto> exportAll() {
+        log.info("Start to export all products");
+        return productRepository.findAllByOrderById()
                 .map(productMapper::toDto)
-                .doOnSubscribe(p -> log.info("All products containing name={} have been found", name));
+                .doOnComplete(() -> log.info("All products have been exported"));
     }
 
     /**
-     * Delete product by id
+     * Import products from NDJSON or CSV lines ({@value #CSV_HEADER}, the header line is optional).
+     * <p>The CSV of the export ({@value #CSV_EXPORT_HEADER}) is accepted too, its id column is ignored.
+     * A quoted CSV field may contain line breaks, its record is numbered by the first line.</p>
+     * <p>The valid rows are saved by batches of one upsert statement: a product with an existing name is updated,
+     * the others are inserted, the last row of a duplicated name in a batch wins.
+     * Each batch commits in its own transaction together with the totals of the orders containing its updated products,
+     * so a failed or cancelled import never leaves the totals of the committed batches stale.
+     * Only one batch is held in memory, invalid rows are reported by line number and skipped.</p>
+     *
+     * @param lines lines of the uploaded file
+     * @param csv   true for CSV lines, false for NDJSON lines
+     * @return counters of the inserted, updated and failed rows and the row errors
+     */
+    public Mono<ProductImportResponseDto> importProducts(Flux<String> lines, boolean csv) {
+        log.info("Start to import products, csv={}", csv);
+        var report = new ProductImportResponseDto();
+        return (csv ? joinCsvRecords(lines.index()) : lines.index())
+                .filter(line -> !line.getT2().isBlank())
+                .filter(line -> !(csv && line.getT1() == 0 && isCsvHeader(line.getT2().strip())))
+                .mapNotNull(line -> parseProduct(line.getT1() + 1, line.getT2(), csv, report))
+                .buffer(importBatchSize)
+                // A batch commits together with the totals of the orders containing its updated products
+                .concatMap(batch -> productRepository.upsertAllByName(distinctByName(batch))
+                        .flatMap(upserted -> orderRepository.refreshTotalsByProductIds(upserted.getT2()).thenReturn(upserted))
+                        .as(transactionalOperator::transactional))
+                .doOnNext(upserted -> {
+                    report.setInserted(report.getInserted() + upserted.getT1());
+                    report.setUpdated(report.getUpdated() + upserted.getT2().size());
+                })
+                .then(Mono.fromSupplier(() -> report))
+                .doFinally(signal -> productCache.invalidateAll())
+                .doOnSuccess(r -> log.info("Products have been imported: inserted={} updated={} failed={}",
+                        r.getInserted(), r.getUpdated(), r.getFailed()));
+    }
+
+    /**
+     * Delete product by id, the totals of the orders containing the product are recomputed without it
      *
      * @param id product id
      */
-    @Transactional
     public Mono<Void> deleteById(Long id) {
         log.info("Start to delete product by id={}", id);
         return productRepository.findById(id)
                 .switchIfEmpty(Mono.error(new ModelNotFoundException("Product id=" + id + " wasn't found")))
-                .doOnError(p -> log.warn("Product id=" + id + " wasn't found"))
-                .flatMap(productRepository::delete)
+                .doOnError(p -> log.warn("Product id={} wasn't found", id))
+                .flatMap(p -> orderRepository.refreshTotalsWithoutProduct(id)
+                        .then(productRepository.delete(p)))
+                .as(transactionalOperator::transactional)
+                .doOnSuccess(p -> productCache.invalidate(id))
                 .doOnSuccess(p -> log.info("Product id={} have been deleted", id));
     }
 
     /**
      * Delete all products
      */
-    @Transactional
     public Mono<Void> deleteAll() {
         log.info("Start to delete all products");
         return productRepository.deleteAll()
+                .then(orderRepository.refreshAllTotals())
+                .then()
+                .as(transactionalOperator::transactional)
+                .doOnSuccess(p -> productCache.invalidateAll())
                 .doOnSuccess(p -> log.info("All products have been deleted"));
     }
 
@@ -146,4 +276,133 @@ public class ProductService {
         return productRepository.existsProductByIdIn(productIds, productIds.size());
     }
 
+    /**
+     * Get the product cache counters
+     *
+     * @return hits, misses, evictions and size of the product cache
+     */
+    public Mono<Map<String, Long>> getCacheStats() {
+        var stats = productCache.stats();
+        Map<String, Long> counters = new LinkedHashMap<>();
+        counters.put("hits", stats.hitCount());
+        counters.put("misses", stats.missCount());
+        counters.put("evictions", stats.evictionCount());
+        counters.put("size", productCache.size());
+        return Mono.just(counters);
+    }
+
+    //-----------------------------------
+    //         Private methods
+    //-----------------------------------
+
+    /**
+     * Parse and validate the row, an invalid row is added to the report errors
+     *
+     * @return valid product or null
+     */
+    private ProductRequestDto parseProduct(long lineNumber, String line, boolean csv, ProductImportResponseDto report) {
+        List<String> errors = new ArrayList<>();
+        ProductRequestDto product = null;
+        try {
+            product = csv ? parseCsvProduct(line) : objectMapper.readValue(line, ProductRequestDto.class);
+            Set<ConstraintViolation<ProductRequestDto>> violations = validator.validate(product);
+            violations.forEach(violation -> errors.add(
+                    String.format("Invalid '%s': %s", violation.getPropertyPath(), violation.getMessage())));
+        } catch (JsonProcessingException | IllegalArgumentException ex) {
+            errors.add("Unreadable row: " + String.valueOf(ex.getMessage()).lines().findFirst().orElse(""));
+        }
+        if (errors.isEmpty()) {
+            return product;
+        }
+        report.setFailed(report.getFailed() + 1);
+        if (report.getErrors().size() < importMaxReportedErrors) {
+            report.getErrors().add("Line " + lineNumber + ": " + String.join("; ", errors));
+        }
+        return null;
+    }
+
+    /**
+     * Parse the CSV row, a field may be quoted by '"' and a quote inside it is doubled
+     */
+    private static ProductRequestDto parseCsvProduct(String line) {
+        List<String> fields = new ArrayList<>(4);
+        var field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString().stripTrailing());
+        if (fields.size() == 4) {
+            fields.remove(0);
+        } else if (fields.size() != 3) {
+            throw new IllegalArgumentException("expected 3 fields (" + CSV_HEADER + ") or 4 fields ("
+                    + CSV_EXPORT_HEADER + "), found " + fields.size());
+        }
+        return new ProductRequestDto(fields.get(0), fields.get(1), new BigDecimal(fields.get(2).strip()));
+    }
+
+    /**
+     * Join the lines of a CSV record whose quoted field contains line breaks, an unclosed quote spans
+     * at most {@value #MAX_CSV_RECORD_LINES} lines, then the record is closed and fails to parse
+     */
+    private static Flux<Tuple2<Long, String>> joinCsvRecords(Flux<Tuple2<Long, String>> lines) {
+        return Flux.defer(() -> {
+            var quoted = new AtomicBoolean();
+            var recordLines = new AtomicInteger();
+            return lines.bufferUntil(line -> {
+                        if (line.getT2().chars().filter(c -> c == '"').count() % 2 == 1) {
+                            quoted.set(!quoted.get());
+                        }
+                        if (!quoted.get() || recordLines.incrementAndGet() >= MAX_CSV_RECORD_LINES) {
+                            quoted.set(false);
+                            recordLines.set(0);
+                            return true;
+                        }
+                        return false;
+                    })
+                    .map(record -> Tuples.of(record.get(0).getT1(), record.stream()
+                            .map(Tuple2::getT2)
+                            .collect(Collectors.joining("\n"))));
+        });
+    }
+
+    private static boolean isCsvHeader(String line) {
+        return line.equalsIgnoreCase(CSV_HEADER) || line.equalsIgnoreCase(CSV_EXPORT_HEADER);
+    }
+
+    private static Collection<ProductRequestDto> distinctByName(List<ProductRequestDto> products) {
+        Map<String, ProductRequestDto> productsByName = new LinkedHashMap<>();
+        products.forEach(product -> productsByName.put(product.getName(), product));
+        return productsByName.values();
+    }
+
+    /**
+     * Escape LIKE wildcards, so the query is matched literally
+     *
+     * @param query search query
+     * @return query with escaped backslash, '%' and '_'
+     */
+    private static String escapeLikePattern(String query) {
+        return query.replace("\\", "\\\\")
+                .replace("%", "\\%")
+                .replace("_", "\\_");
+    }
+
 }
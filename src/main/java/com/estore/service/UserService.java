@@ -1,5 +1,6 @@
 package com.estore.service;
 
+import com.estore.cache.UserCache;
 import com.estore.dto.request.AddressRequestDto;
 import com.estore.dto.request.UserRequestDto;
 import com.estore.dto.response.AddressResponseDto;
@@ -10,15 +11,19 @@ import com.estore.mapper.UserMapper;
 import com.estore.model.Address;
 import com.estore.model.UserEntity;
 import com.estore.repository.AddressRepository;
+import com.estore.repository.SparseColumnsTemplate;
 import com.estore.repository.UserRepository;
+import com.estore.security.PasswordHashingService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.reactive.TransactionalOperator;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Set;
+
 /**
  * {@link UserService}
  *
@@ -34,18 +39,24 @@ public class UserService {
     private final OrderService orderService;
     private final UserMapper userMapper;
     private final AddressMapper addressMapper;
-    private final PasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashingService;
+    private final UserCache userCache;
+    private final TransactionalOperator transactionalOperator;
+    private final SparseColumnsTemplate sparseColumnsTemplate;
+
+    private static final String ADDRESS_FIELD = "address";
 
     /**
-     * Create a new User
+     * Create a new User, the password is hashed off the event loop
      *
      * @return the saved user without the related entities
      */
     @Transactional
     public Mono<UserResponseDto> createUser(UserRequestDto userRequestDto) {
         log.info("Start to create User");
-        userRequestDto.setPassword(passwordEncoder.encode(userRequestDto.getPassword()));
-        return userRepository.save(userMapper.toModel(userRequestDto))
+        return passwordHashingService.encode(userRequestDto.getPassword())
+                .doOnNext(userRequestDto::setPassword)
+                .flatMap(encodedPassword -> userRepository.save(userMapper.toModel(userRequestDto)))
                 .map(userMapper::toUser)
                 .doOnSuccess(user -> log.info("User id={} have been created", user.getId()));
     }
@@ -76,13 +87,18 @@ public class UserService {
      * @return Updated user.
      * @throws ModelNotFoundException User with id wasn't found.
      */
-    @Transactional
     public Mono<UserResponseDto> update(Long id, UserRequestDto userRequestDto) {
         log.info("Start to update User");
         UserEntity updatedUser = userMapper.toModel(userRequestDto);
         return getUserById(id)
                 .doOnNext(user -> updatedUser.setId(user.getId()))
-                .flatMap(user -> userRepository.save(updatedUser))
+                .flatMap(user -> userRepository.save(updatedUser)
+                        .as(transactionalOperator::transactional)
+                        // Invalidated after the commit, so a concurrent login can't cache the old password or role again
+                        .doOnSuccess(savedUser -> {
+                            userCache.invalidate(user.getUsername());
+                            userCache.invalidate(updatedUser.getUsername());
+                        }))
                 .map(userMapper::toUser)
                 .doOnSuccess(user -> log.info("User id={} have been updated", user.getId()));
     }
@@ -102,7 +118,7 @@ public class UserService {
     }
 
     /**
-     * Find User by Username
+     * Find User by Username, the user cache is consulted first
      *
      * @param username User name
      * @return Find user
@@ -110,9 +126,9 @@ public class UserService {
      */
     public Mono<UserResponseDto> findByUsername(String username) {
         log.info("Start to find user by username={}", username);
-        return userRepository.findByUsername(username)
+        return userCache.get(username, userRepository::findByUsername)
                 .switchIfEmpty(Mono.error(new ModelNotFoundException("Username=" + username + " wasn't found")))
-                .doOnError(user -> log.warn("Username=" + username + " wasn't found"))
+                .doOnError(user -> log.warn("Username={} wasn't found", username))
                 .flatMap(this::loadAddress)
                 .doOnSuccess(user -> log.info("User id={} have been found", user.getId()));
     }
@@ -125,10 +141,23 @@ public class UserService {
      * @throws ModelNotFoundException User with id wasn't found
      */
     public Mono<UserResponseDto> findUserOrdersHistoryById(Long id) {
+        return findUserOrdersHistoryById(id, null, null);
+    }
+
+    /**
+     * Find User info and a page of the Orders history by user id
+     *
+     * @param id     user id
+     * @param before cursor, only orders with id less than it are loaded (all orders if null)
+     * @param limit  max number of orders (unlimited if null)
+     * @return Find user with the related orders history, from the newest to the oldest order
+     * @throws ModelNotFoundException User with id wasn't found
+     */
+    public Mono<UserResponseDto> findUserOrdersHistoryById(Long id, Long before, Integer limit) {
         log.info("Start to find User with OrdersHistory By userId={}", id);
         return getUserById(id)
                 .map(userMapper::toUser)
-                .flatMap(this::loadOrdersHistory)
+                .flatMap(user -> loadOrdersHistory(user, before, limit))
                 .doOnSuccess(user -> log.info("User id={} with OrdersHistory have been found", user.getId()));
     }
 
@@ -143,7 +172,7 @@ public class UserService {
         log.info("Start to find full User info by id={}", id);
         return getUserById(id)
                 .flatMap(userEntity -> loadAddress(userEntity)
-                        .flatMap(this::loadOrdersHistory))
+                        .flatMap(user -> loadOrdersHistory(user, null, null)))
                 .doOnSuccess(user -> log.info("Full User info by id={} have been found", user.getId()));
     }
 
@@ -159,6 +188,39 @@ public class UserService {
                 .doOnSubscribe(o -> log.info("All orders have been found"));
     }
 
+    /**
+     * Find a page of Users ordered by id
+     *
+     * @param after keyset cursor, only users with id greater than it are returned (from the first user if null)
+     * @param limit max number of users in the page
+     * @return Find users with the related address loaded
+     */
+    public Flux<UserResponseDto> findAll(Long after, int limit) {
+        log.info("Start to find users after id={} limit={}", after, limit);
+        return userRepository.findAllAfterId(after == null ? 0L : after, limit)
+                .flatMapSequential(this::loadAddress)
+                .doOnSubscribe(o -> log.info("Users after id={} have been found", after));
+    }
+
+    /**
+     * Find a page of Users ordered by id selecting only the requested fields,
+     * the address is loaded only if it is requested
+     *
+     * @param after  keyset cursor, only users with id greater than it are returned (from the first user if null)
+     * @param limit  max number of users in the page
+     * @param fields selected fields, all fields if empty
+     * @return Find users with only the id and the selected fields set
+     */
+    public Flux<UserResponseDto> findAll(Long after, int limit, Set<String> fields) {
+        if (fields.isEmpty()) {
+            return findAll(after, limit);
+        }
+        log.info("Start to find users after id={} limit={} fields={}", after, limit, fields);
+        Flux<UserEntity> users = sparseColumnsTemplate.findAllAfterId(UserEntity.class, after == null ? 0L : after, limit, fields);
+        return (fields.contains(ADDRESS_FIELD) ? users.flatMapSequential(this::loadAddress) : users.map(userMapper::toUser))
+                .doOnSubscribe(o -> log.info("Users after id={} have been found", after));
+    }
+
     /**
      * Deletes User by id.
      * Also deletes all related address and orders.
@@ -167,11 +229,12 @@ public class UserService {
      * @return Mono<Void>
      * @throws ModelNotFoundException if the user is not found.
      */
-    @Transactional
     public Mono<Void> deleteById(Long id) {
         log.info("Start to delete user by id={}", id);
         return getUserById(id)
-                .flatMap(userEntity -> userRepository.deleteById(userEntity.getId()))
+                .flatMap(userEntity -> userRepository.deleteById(userEntity.getId())
+                        .as(transactionalOperator::transactional)
+                        .doOnSuccess(deleted -> userCache.invalidate(userEntity.getUsername())))
                 .doOnSuccess(o -> log.info("User id={} has been deleted", id));
     }
 
@@ -181,10 +244,11 @@ public class UserService {
      *
      * @return Mono<Void>
      */
-    @Transactional
     public Mono<Void> deleteAll() {
         log.info("Start to delete all Users");
         return userRepository.deleteAll()
+                .as(transactionalOperator::transactional)
+                .doOnSuccess(o -> userCache.invalidateAll())
                 .doOnSuccess(o -> log.info("All Users has been deleted"));
     }
 
@@ -200,7 +264,7 @@ public class UserService {
         return addressRepository.findByUserId(id)
                 .switchIfEmpty(Mono.error(new ModelNotFoundException("Address with userId=" + id + " wasn't found")))
                 .map(addressMapper::toDto)
-                .doOnError(user -> log.warn("Address with userId=" + id + " wasn't found"))
+                .doOnError(user -> log.warn("Address with userId={} wasn't found", id))
                 .doOnSuccess(o -> log.info("Address by userId has been found"));
     }
 
@@ -208,8 +272,8 @@ public class UserService {
     //         Private methods
     //-----------------------------------
 
-    private Mono<UserResponseDto> loadOrdersHistory(UserResponseDto userDto) {
-        return orderService.findAll()
+    private Mono<UserResponseDto> loadOrdersHistory(UserResponseDto userDto, Long before, Integer limit) {
+        return orderService.findOrdersHistoryByUserId(userDto.getId(), before, limit)
                 .collectList()
                 .doOnNext(userDto::setOrdersHistory)
                 .map(orders -> userDto);
@@ -244,7 +308,7 @@ public class UserService {
     private Mono<UserEntity> getUserById(Long id) {
         return userRepository.findById(id)
                 .switchIfEmpty(Mono.error(new ModelNotFoundException("User id=" + id + " wasn't found")))
-                .doOnError(user -> log.warn("User id=" + id + " wasn't found"));
+                .doOnError(user -> log.warn("User id={} wasn't found", id));
     }
 
 }
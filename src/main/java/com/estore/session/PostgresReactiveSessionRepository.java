@@ -0,0 +1,128 @@
+package com.estore.session;
+
+import io.r2dbc.spi.Row;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.session.MapSession;
+import org.springframework.session.ReactiveSessionRepository;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * {@link PostgresReactiveSessionRepository} stores the web sessions in the {@code e_store.web_session} table
+ * by the application R2DBC connection, so every node behind the balancer shares the sessions.
+ * <p>The attributes are stored in the compact form of {@link SessionAttributesSerializer}.
+ * Expired sessions are not returned and are removed by {@link #deleteExpiredSessions()}.</p>
+ *
+ * @author Dmytro Trotsenko on 7/28/23
+ */
+
+@Slf4j
+public class PostgresReactiveSessionRepository implements ReactiveSessionRepository<MapSession> {
+
+    private final DatabaseClient databaseClient;
+    private final SessionAttributesSerializer serializer = new SessionAttributesSerializer();
+    private final Duration defaultMaxInactiveInterval;
+
+    public PostgresReactiveSessionRepository(DatabaseClient databaseClient, Duration defaultMaxInactiveInterval) {
+        this.databaseClient = databaseClient;
+        this.defaultMaxInactiveInterval = defaultMaxInactiveInterval;
+    }
+
+    @Override
+    public Mono<MapSession> createSession() {
+        return Mono.fromSupplier(() -> {
+            var session = new MapSession();
+            session.setMaxInactiveInterval(defaultMaxInactiveInterval);
+            return session;
+        });
+    }
+
+    @Override
+    public Mono<Void> save(MapSession session) {
+        // The id is changed on login, the row of the original id is replaced
+        Mono<Void> deleteOriginal = session.getId().equals(session.getOriginalId())
+                ? Mono.empty()
+                : deleteById(session.getOriginalId());
+
+        return deleteOriginal.then(Mono.defer(() -> databaseClient.sql("""
+                        INSERT INTO e_store.web_session
+                            (id, creation_time, last_access_time, max_inactive_interval, expiry_time, attributes)
+                        VALUES (:id, :creation_time, :last_access_time, :max_inactive_interval, :expiry_time, :attributes)
+                        ON CONFLICT (id) DO UPDATE
+                            SET last_access_time = EXCLUDED.last_access_time,
+                                max_inactive_interval = EXCLUDED.max_inactive_interval,
+                                expiry_time = EXCLUDED.expiry_time,
+                                attributes = EXCLUDED.attributes
+                        """)
+                .bind("id", session.getId())
+                .bind("creation_time", session.getCreationTime())
+                .bind("last_access_time", session.getLastAccessedTime())
+                .bind("max_inactive_interval", (int) session.getMaxInactiveInterval().toSeconds())
+                .bind("expiry_time", getExpiryTime(session))
+                .bind("attributes", serializer.serialize(session))
+                .then()));
+    }
+
+    @Override
+    public Mono<MapSession> findById(String id) {
+        return databaseClient.sql("""
+                        SELECT id, creation_time, last_access_time, max_inactive_interval, attributes
+                        FROM e_store.web_session
+                        WHERE id = :id
+                        """)
+                .bind("id", id)
+                .map((row, metadata) -> toSession(row))
+                .one()
+                .flatMap(session -> session.isExpired()
+                        ? deleteById(session.getId()).then(Mono.empty())
+                        : Mono.just(session));
+    }
+
+    @Override
+    public Mono<Void> deleteById(String id) {
+        return databaseClient.sql("DELETE FROM e_store.web_session WHERE id = :id")
+                .bind("id", id)
+                .then();
+    }
+
+    /**
+     * Delete all expired sessions
+     *
+     * @return number of deleted sessions
+     */
+    public Mono<Long> deleteExpiredSessions() {
+        return databaseClient.sql("DELETE FROM e_store.web_session WHERE expiry_time < :now")
+                .bind("now", Instant.now())
+                .fetch()
+                .rowsUpdated()
+                .doOnSuccess(deleted -> log.info("{} expired sessions have been deleted", deleted));
+    }
+
+    //-----------------------------------
+    //         Private methods
+    //-----------------------------------
+
+    private MapSession toSession(Row row) {
+        var session = new MapSession(row.get("id", String.class));
+        session.setCreationTime(row.get("creation_time", Instant.class));
+        session.setLastAccessedTime(row.get("last_access_time", Instant.class));
+        session.setMaxInactiveInterval(Duration.ofSeconds(row.get("max_inactive_interval", Integer.class)));
+        serializer.deserialize(row.get("attributes", byte[].class), session);
+        return session;
+    }
+
+    /**
+     * A session with negative max inactive interval never expires
+     */
+    private static Instant getExpiryTime(MapSession session) {
+        Duration maxInactiveInterval = session.getMaxInactiveInterval();
+        return maxInactiveInterval.isNegative()
+                ? session.getLastAccessedTime().plus(36500, ChronoUnit.DAYS)
+                : session.getLastAccessedTime().plus(maxInactiveInterval);
+    }
+
+}
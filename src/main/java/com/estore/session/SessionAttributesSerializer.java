@@ -0,0 +1,129 @@
+package com.estore.session;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.session.MapSession;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link SessionAttributesSerializer} writes the session attributes in the compact binary form stored by
+ * {@link PostgresReactiveSessionRepository}.
+ * <p>The authenticated {@link SecurityContext} is written as the username and the authority names only,
+ * the credentials are never stored. Strings are written as UTF, other serializable attributes
+ * fall back to the Java serialization.</p>
+ *
+ * @author Dmytro Trotsenko on 7/28/23
+ */
+
+@Slf4j
+class SessionAttributesSerializer {
+
+    private static final byte SECURITY_CONTEXT = 1;
+    private static final byte STRING = 2;
+    private static final byte SERIALIZED = 3;
+
+    /**
+     * Serialize the attributes of the session
+     *
+     * @param session session
+     * @return attributes bytes
+     */
+    byte[] serialize(MapSession session) {
+        var bytes = new ByteArrayOutputStream(256);
+        try (var out = new DataOutputStream(bytes)) {
+            List<String> names = new ArrayList<>(session.getAttributeNames());
+            out.writeInt(names.size());
+            for (String name : names) {
+                out.writeUTF(name);
+                writeAttribute(out, session.getAttribute(name));
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Session id=" + session.getId() + " attributes can't be serialized", ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Deserialize the attributes into the session
+     *
+     * @param attributes attributes bytes
+     * @param session    session to be filled
+     */
+    void deserialize(byte[] attributes, MapSession session) {
+        try (var in = new DataInputStream(new ByteArrayInputStream(attributes))) {
+            int size = in.readInt();
+            for (int i = 0; i < size; i++) {
+                String name = in.readUTF();
+                session.setAttribute(name, readAttribute(in));
+            }
+        } catch (IOException | ClassNotFoundException ex) {
+            throw new IllegalStateException("Session id=" + session.getId() + " attributes can't be deserialized", ex);
+        }
+    }
+
+    //-----------------------------------
+    //         Private methods
+    //-----------------------------------
+
+    private void writeAttribute(DataOutputStream out, Object value) throws IOException {
+        if (value instanceof SecurityContext context
+                && context.getAuthentication() instanceof UsernamePasswordAuthenticationToken authentication
+                && authentication.isAuthenticated()) {
+            out.writeByte(SECURITY_CONTEXT);
+            out.writeUTF(authentication.getName());
+            out.writeInt(authentication.getAuthorities().size());
+            for (GrantedAuthority authority : authentication.getAuthorities()) {
+                out.writeUTF(authority.getAuthority());
+            }
+        } else if (value instanceof String string) {
+            out.writeByte(STRING);
+            out.writeUTF(string);
+        } else {
+            out.writeByte(SERIALIZED);
+            var bytes = new ByteArrayOutputStream();
+            try (var objectOut = new ObjectOutputStream(bytes)) {
+                objectOut.writeObject(value);
+            }
+            out.writeInt(bytes.size());
+            bytes.writeTo(out);
+        }
+    }
+
+    private Object readAttribute(DataInputStream in) throws IOException, ClassNotFoundException {
+        byte type = in.readByte();
+        return switch (type) {
+            case SECURITY_CONTEXT -> readSecurityContext(in);
+            case STRING -> in.readUTF();
+            case SERIALIZED -> {
+                byte[] bytes = new byte[in.readInt()];
+                in.readFully(bytes);
+                try (var objectIn = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+                    yield objectIn.readObject();
+                }
+            }
+            default -> throw new IOException("Unknown session attribute type=" + type);
+        };
+    }
+
+    private SecurityContext readSecurityContext(DataInputStream in) throws IOException {
+        String username = in.readUTF();
+        int size = in.readInt();
+        List<GrantedAuthority> authorities = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            authorities.add(new SimpleGrantedAuthority(in.readUTF()));
+        }
+        var principal = new User(username, "", authorities);
+        Authentication authentication = UsernamePasswordAuthenticationToken.authenticated(principal, null, authorities);
+        return new SecurityContextImpl(authentication);
+    }
+
+}
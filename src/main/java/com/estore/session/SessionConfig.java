@@ -0,0 +1,61 @@
+package com.estore.session;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.session.ReactiveMapSessionRepository;
+import org.springframework.session.config.annotation.web.server.EnableSpringWebSession;
+
+import java.time.Duration;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link SessionConfig} selects the web session store by {@code estore.session.store}:
+ * <ul>
+ *     <li>memory - the sessions of one node are kept in memory, the default</li>
+ *     <li>postgres - the sessions are shared by all nodes in the {@code e_store.web_session} table</li>
+ * </ul>
+ * <p>A session is stored only after an attribute is set, so anonymous catalog browsers never create one.</p>
+ *
+ * @author Dmytro Trotsenko on 7/28/23
+ */
+
+@Configuration
+@EnableSpringWebSession
+public class SessionConfig {
+
+    @Bean
+    @ConditionalOnProperty(name = "estore.session.store", havingValue = "memory", matchIfMissing = true)
+    public ReactiveMapSessionRepository reactiveMapSessionRepository(@Value("${estore.session.timeout}") Duration timeout) {
+        var sessionRepository = new ReactiveMapSessionRepository(new ConcurrentHashMap<>());
+        sessionRepository.setDefaultMaxInactiveInterval(timeout);
+        return sessionRepository;
+    }
+
+    @Configuration
+    @EnableScheduling
+    @ConditionalOnProperty(name = "estore.session.store", havingValue = "postgres")
+    static class PostgresSessionConfig {
+
+        private final PostgresReactiveSessionRepository sessionRepository;
+
+        PostgresSessionConfig(DatabaseClient databaseClient, @Value("${estore.session.timeout}") Duration timeout) {
+            this.sessionRepository = new PostgresReactiveSessionRepository(databaseClient, timeout);
+        }
+
+        @Bean
+        public PostgresReactiveSessionRepository postgresReactiveSessionRepository() {
+            return sessionRepository;
+        }
+
+        @Scheduled(fixedDelayString = "${estore.session.cleanup-interval}")
+        public void deleteExpiredSessions() {
+            sessionRepository.deleteExpiredSessions().subscribe();
+        }
+    }
+
+}
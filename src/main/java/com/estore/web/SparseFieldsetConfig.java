@@ -0,0 +1,39 @@
+package com.estore.web;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.boot.autoconfigure.jackson.Jackson2ObjectMapperBuilderCustomizer;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+
+/**
+ * {@link SparseFieldsetConfig} registers the {@link SparseFieldsetJsonEncoder} as the JSON encoder of WebFlux.
+ *
+ * @author Dmytro Trotsenko on 8/8/23
+ */
+
+@Configuration
+public class SparseFieldsetConfig {
+
+    /**
+     * The filtered dtos are written in full by the ObjectMapper itself, e.g. for the ETag calculation
+     */
+    @Bean
+    public Jackson2ObjectMapperBuilderCustomizer sparseFieldsetFilterCustomizer() {
+        return builder -> builder.filters(new SimpleFilterProvider()
+                .addFilter(SparseFieldsetJsonEncoder.FILTER_ID, SimpleBeanPropertyFilter.serializeAll()));
+    }
+
+    /**
+     * Ordered after the Spring Boot Jackson codec customizer, which registers the default encoder
+     */
+    @Bean
+    @Order(1)
+    public CodecCustomizer sparseFieldsetCodecCustomizer(ObjectMapper objectMapper) {
+        return configurer -> configurer.defaultCodecs().jackson2JsonEncoder(new SparseFieldsetJsonEncoder(objectMapper));
+    }
+
+}
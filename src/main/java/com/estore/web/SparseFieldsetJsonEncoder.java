@@ -0,0 +1,124 @@
+package com.estore.web;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.PropertyWriter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleBeanPropertyFilter;
+import com.fasterxml.jackson.databind.ser.impl.SimpleFilterProvider;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.lang.Nullable;
+import org.springframework.util.MimeType;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * {@link SparseFieldsetJsonEncoder} writes only the fields listed by the {@code ?fields=id,name,price} request parameter.
+ * <ul>
+ *     <li>The selection applies to the dtos annotated by {@code @JsonFilter(FILTER_ID)} at the top level of the body,
+ *     a single dto or the elements of a list or a stream, the nested objects are written in full.</li>
+ *     <li>Unknown fields are ignored, the write-only fields like the password are never written.</li>
+ *     <li>Without the parameter the dtos are written in full by the {@code serializeAll} filter of the ObjectMapper.</li>
+ * </ul>
+ *
+ * @author Dmytro Trotsenko on 8/8/23
+ */
+
+public class SparseFieldsetJsonEncoder extends Jackson2JsonEncoder {
+
+    public static final String FILTER_ID = "sparseFieldset";
+    public static final String FIELDS_PARAM = "fields";
+
+    private static final String FIELDS_HINT = SparseFieldsetJsonEncoder.class.getName() + ".fields";
+
+    public SparseFieldsetJsonEncoder(ObjectMapper objectMapper) {
+        super(objectMapper);
+    }
+
+    /**
+     * Parse the comma separated fields parameter
+     *
+     * @param fields value of the fields parameter, may be null
+     * @return selected field names in the request order, empty if all fields are requested
+     */
+    public static Set<String> parse(@Nullable String fields) {
+        if (fields == null || fields.isBlank()) {
+            return Collections.emptySet();
+        }
+        return Arrays.stream(fields.split(","))
+                .map(String::strip)
+                .filter(field -> !field.isEmpty())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    @Override
+    public Map<String, Object> getEncodeHints(ResolvableType actualType, ResolvableType elementType, @Nullable MediaType mediaType,
+                                              ServerHttpRequest request, ServerHttpResponse response) {
+        Map<String, Object> hints = super.getEncodeHints(actualType, elementType, mediaType, request, response);
+        String fields = request.getQueryParams().getFirst(FIELDS_PARAM);
+        if (fields == null) {
+            return hints;
+        }
+        Map<String, Object> fieldsHints = new HashMap<>(hints);
+        fieldsHints.put(FIELDS_HINT, parse(fields));
+        return fieldsHints;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    protected ObjectWriter customizeWriter(ObjectWriter writer, @Nullable MimeType mimeType, ResolvableType elementType,
+                                           @Nullable Map<String, Object> hints) {
+        Set<String> fields = (hints != null) ? (Set<String>) hints.get(FIELDS_HINT) : null;
+        if (fields == null) {
+            return super.customizeWriter(writer, mimeType, elementType, hints);
+        }
+        return super.customizeWriter(writer, mimeType, elementType, hints)
+                .with(new SimpleFilterProvider().addFilter(FILTER_ID, new TopLevelFieldsFilter(fields)));
+    }
+
+    /**
+     * Writes only the selected fields of the top level objects, the fields of the nested objects are written in full
+     */
+    private static final class TopLevelFieldsFilter extends SimpleBeanPropertyFilter {
+
+        private final Set<String> fields;
+
+        private TopLevelFieldsFilter(Set<String> fields) {
+            this.fields = fields;
+        }
+
+        @Override
+        public void serializeAsField(Object pojo, JsonGenerator generator, SerializerProvider provider,
+                                     PropertyWriter writer) throws Exception {
+            if (fields.contains(writer.getName()) || !isTopLevel(generator)) {
+                writer.serializeAsField(pojo, generator, provider);
+            } else if (!generator.canOmitFields()) {
+                writer.serializeAsOmittedField(pojo, generator, provider);
+            }
+        }
+
+        private static boolean isTopLevel(JsonGenerator generator) {
+            int objects = 0;
+            for (JsonStreamContext context = generator.getOutputContext(); context != null; context = context.getParent()) {
+                if (context.inObject()) {
+                    objects++;
+                }
+            }
+            return objects <= 1;
+        }
+
+    }
+
+}
@@ -0,0 +1,85 @@
+package com.estore.web;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.http.CacheControl;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.resource.ContentVersionStrategy;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@link VersionedResourcesWebFilter} serves the static assets by content-hashed URLs.
+ * <ul>
+ *     <li>The links rendered by Thymeleaf {@code @{/css/main.css}} are rewritten to {@code /css/main-<md5>.css}.
+ *     The versions are calculated once at startup by the {@link ContentVersionStrategy},
+ *     which also resolves the versioned URLs in the resource chain.</li>
+ *     <li>A versioned URL never changes its content, so it is cached as immutable for a year.</li>
+ * </ul>
+ *
+ * @author Dmytro Trotsenko on 8/2/23
+ */
+
+@Component
+@Slf4j
+public class VersionedResourcesWebFilter implements WebFilter {
+
+    private static final String STATIC_LOCATION = "classpath:/static/";
+    private static final CacheControl IMMUTABLE = CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable();
+
+    private final Map<String, String> versionedUrls = new HashMap<>();
+    private final Set<String> versionedPaths = new HashSet<>();
+
+    public VersionedResourcesWebFilter(@Value("${estore.web.versioned-resources}") List<String> patterns) {
+        var versionStrategy = new ContentVersionStrategy();
+        var resolver = new PathMatchingResourcePatternResolver();
+        try {
+            Resource root = resolver.getResource(STATIC_LOCATION);
+            String rootUrl = root.getURL().toString();
+            for (String pattern : patterns) {
+                for (Resource resource : resolver.getResources(STATIC_LOCATION + pattern)) {
+                    String path = "/" + resource.getURL().toString().substring(rootUrl.length());
+                    if (!resource.isReadable() || path.endsWith(".gz") || path.endsWith(".br")) {
+                        // Directories and precompressed copies are not linked
+                        continue;
+                    }
+                    String version = versionStrategy.getResourceVersion(resource).block();
+                    String versionedPath = versionStrategy.addVersion(path, version);
+                    versionedUrls.put(path, versionedPath);
+                    versionedPaths.add(versionedPath);
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Static resources can't be versioned", ex);
+        }
+        log.info("{} static resources are served by versioned URLs", versionedUrls.size());
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        exchange.addUrlTransformer(url -> versionedUrls.getOrDefault(url, url));
+
+        if (versionedPaths.contains(exchange.getRequest().getPath().pathWithinApplication().value())) {
+            // Set before commit, after the resource handler has written its own cache headers
+            exchange.getResponse().beforeCommit(() -> {
+                exchange.getResponse().getHeaders().setCacheControl(IMMUTABLE);
+                return Mono.empty();
+            });
+        }
+        return chain.filter(exchange);
+    }
+
+}
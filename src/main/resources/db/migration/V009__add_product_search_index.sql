@@ -0,0 +1,8 @@
+-- Trigram indexes for the product search by a part of name or description
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS product_name_trgm_idx
+    ON e_store.product USING GIN (name gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS product_description_trgm_idx
+    ON e_store.product USING GIN (description gin_trgm_ops);
@@ -0,0 +1,30 @@
+-- Merge duplicated products of an order into one order item before adding the unique constraint
+UPDATE e_store.order_item oi
+SET quantity = duplicate.quantity
+FROM (SELECT MIN(id) AS id, SUM(quantity) AS quantity
+      FROM e_store.order_item
+      GROUP BY fk_order_id, fk_product_id
+      HAVING COUNT(*) > 1) duplicate
+WHERE oi.id = duplicate.id;
+
+DELETE FROM e_store.order_item oi
+USING e_store.order_item kept
+WHERE oi.fk_order_id = kept.fk_order_id
+  AND oi.fk_product_id = kept.fk_product_id
+  AND oi.id > kept.id;
+
+-- One order item per product in an order, also serves the lookups by fk_order_id
+ALTER TABLE e_store.order_item
+    ADD CONSTRAINT order_item_order_id_product_id_key UNIQUE (fk_order_id, fk_product_id);
+
+-- ON DELETE CASCADE from the product
+CREATE INDEX IF NOT EXISTS order_item_product_id_idx
+    ON e_store.order_item (fk_product_id);
+
+-- Orders by user and status, also serves the lookups by fk_user_id and ON DELETE CASCADE from the user
+CREATE INDEX IF NOT EXISTS order_user_id_status_idx
+    ON e_store.order (fk_user_id, status);
+
+-- Address by user and ON DELETE CASCADE from the user
+CREATE INDEX IF NOT EXISTS address_user_id_idx
+    ON e_store.address (fk_user_id);
@@ -0,0 +1,13 @@
+-- Creating a table of the web sessions shared by all application nodes
+CREATE TABLE IF NOT EXISTS e_store.web_session
+(
+    id                      VARCHAR(36) CONSTRAINT web_session_id_pkey PRIMARY KEY,
+    creation_time           TIMESTAMP WITH TIME ZONE NOT NULL,
+    last_access_time        TIMESTAMP WITH TIME ZONE NOT NULL,
+    max_inactive_interval   INTEGER NOT NULL,
+    expiry_time             TIMESTAMP WITH TIME ZONE NOT NULL,
+    attributes              BYTEA NOT NULL
+);
+
+-- Expired sessions cleanup
+CREATE INDEX IF NOT EXISTS web_session_expiry_time_idx ON e_store.web_session (expiry_time);
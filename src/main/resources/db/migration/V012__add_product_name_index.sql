@@ -0,0 +1,3 @@
+-- Lookup of a product by the exact name, used by the product creation check and the bulk import upsert
+CREATE INDEX IF NOT EXISTS product_name_idx
+    ON e_store.product (name);
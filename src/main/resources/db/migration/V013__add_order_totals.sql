@@ -0,0 +1,10 @@
+-- Denormalized totals of an order, kept by the order item write paths, so order lists don't load the items
+ALTER TABLE e_store.order
+    ADD total_price DECIMAL(14, 2) NOT NULL DEFAULT 0,
+    ADD item_count  INTEGER        NOT NULL DEFAULT 0;
+
+UPDATE e_store.order o
+SET (total_price, item_count) = (SELECT COALESCE(SUM(oi.quantity * p.price), 0), COALESCE(SUM(oi.quantity), 0)
+                                 FROM e_store.order_item oi
+                                 JOIN e_store.product p ON p.id = oi.fk_product_id
+                                 WHERE oi.fk_order_id = o.id);
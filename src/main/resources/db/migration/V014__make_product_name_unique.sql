@@ -0,0 +1,68 @@
+-- Duplicated product names are merged into the product with the lowest id before adding the unique constraint
+CREATE TEMPORARY TABLE product_duplicate ON COMMIT DROP AS
+SELECT p.id, kept.id AS kept_id
+FROM e_store.product p
+JOIN (SELECT name, MIN(id) AS id
+      FROM e_store.product
+      GROUP BY name
+      HAVING COUNT(*) > 1) kept ON kept.name = p.name AND kept.id <> p.id;
+
+-- An order containing both products keeps one order item with the summed quantity
+UPDATE e_store.order_item oi
+SET quantity = oi.quantity + merged.quantity
+FROM (SELECT dup_item.fk_order_id, d.kept_id, SUM(dup_item.quantity) AS quantity
+      FROM e_store.order_item dup_item
+      JOIN product_duplicate d ON d.id = dup_item.fk_product_id
+      GROUP BY dup_item.fk_order_id, d.kept_id) merged
+WHERE oi.fk_order_id = merged.fk_order_id
+  AND oi.fk_product_id = merged.kept_id;
+
+DELETE FROM e_store.order_item dup_item
+USING product_duplicate d, e_store.order_item kept_item
+WHERE dup_item.fk_product_id = d.id
+  AND kept_item.fk_order_id = dup_item.fk_order_id
+  AND kept_item.fk_product_id = d.kept_id;
+
+-- The other order items are moved to the kept product, one item per order if several duplicates were ordered
+UPDATE e_store.order_item oi
+SET quantity = merged.quantity
+FROM (SELECT MIN(dup_item.id) AS id, SUM(dup_item.quantity) AS quantity
+      FROM e_store.order_item dup_item
+      JOIN product_duplicate d ON d.id = dup_item.fk_product_id
+      GROUP BY dup_item.fk_order_id, d.kept_id
+      HAVING COUNT(*) > 1) merged
+WHERE oi.id = merged.id;
+
+DELETE FROM e_store.order_item dup_item
+USING product_duplicate d, product_duplicate other, e_store.order_item other_item
+WHERE dup_item.fk_product_id = d.id
+  AND other_item.fk_product_id = other.id
+  AND other.kept_id = d.kept_id
+  AND other_item.fk_order_id = dup_item.fk_order_id
+  AND other_item.id < dup_item.id;
+
+UPDATE e_store.order_item oi
+SET fk_product_id = d.kept_id
+FROM product_duplicate d
+WHERE oi.fk_product_id = d.id;
+
+DELETE FROM e_store.product p
+USING product_duplicate d
+WHERE p.id = d.id;
+
+-- The merged items may have another price, the totals of the CREATED orders are recomputed
+UPDATE e_store.order o
+SET (total_price, item_count) = (SELECT COALESCE(SUM(oi.quantity * p.price), 0), COALESCE(SUM(oi.quantity), 0)
+                                 FROM e_store.order_item oi
+                                 JOIN e_store.product p ON p.id = oi.fk_product_id
+                                 WHERE oi.fk_order_id = o.id)
+WHERE o.status = 'CREATED'
+  AND o.id IN (SELECT oi.fk_order_id
+               FROM e_store.order_item oi
+               JOIN product_duplicate d ON d.kept_id = oi.fk_product_id);
+
+-- Products are matched by name by the creation check and the bulk import upsert, the constraint replaces the lookup index
+DROP INDEX IF EXISTS e_store.product_name_idx;
+
+ALTER TABLE e_store.product
+    ADD CONSTRAINT product_name_key UNIQUE (name);
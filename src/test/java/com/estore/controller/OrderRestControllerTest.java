@@ -6,6 +6,7 @@ import com.estore.dto.request.OrderItemRequestDto;
 import com.estore.dto.request.OrderRequestDto;
 import com.estore.dto.response.OrderItemResponseDto;
 import com.estore.dto.response.OrderResponseDto;
+import com.estore.dto.response.OrderSummaryDto;
 import com.estore.model.Product;
 import com.estore.model.UserEntity;
 import com.estore.repository.ProductRepository;
@@ -114,7 +115,7 @@ public class OrderRestControllerTest {
         int ordersNum = 3;
         var emptyOrders = createOrdersWithProducts(ordersNum);
 
-        webTestClient.get().uri(URI)
+        webTestClient.get().uri(uri -> uri.path(URI).queryParam("expand", "items").build())
                 .exchange()
                 .expectStatus().isOk()
                 .expectBodyList(OrderResponseDto.class)
@@ -124,6 +125,52 @@ public class OrderRestControllerTest {
                 });
     }
 
+    @Test
+    @WithMockUser
+    void shouldExpandItemsByCaseInsensitiveListOfValues() {
+
+        var savedOrders = createOrdersWithProducts(2);
+
+        webTestClient.get().uri(uri -> uri.path(URI).queryParam("expand", "ITEMS,").build())
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(OrderResponseDto.class)
+                .value(orderList -> assertIterableEquals(savedOrders, orderList));
+    }
+
+    @Test
+    @WithMockUser
+    void shouldRejectUnknownExpandValue() {
+
+        webTestClient.get().uri(uri -> uri.path(URI).queryParam("expand", "items,user").build())
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    @WithMockUser
+    void shouldReturnOrderSummariesWithoutItems() {
+
+        var savedOrders = createOrdersWithProducts(2);
+        var expectedSummaries = savedOrders.stream()
+                .map(order -> new OrderSummaryDto(order.getId(), order.getUserId(), order.getDate(), order.getStatus(),
+                        order.getTotalPrice(), 6))
+                .toList();
+
+        webTestClient.get().uri(URI)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].orderItems").doesNotExist()
+                .jsonPath("$.length()").isEqualTo(2);
+
+        webTestClient.get().uri(URI)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(OrderSummaryDto.class)
+                .value(summaries -> assertIterableEquals(expectedSummaries, summaries));
+    }
+
     @Test
     @WithMockUser
     void shouldReturnOrderById() {
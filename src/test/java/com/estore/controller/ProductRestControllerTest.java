@@ -3,6 +3,7 @@ package com.estore.controller;
 import com.estore.configuration.TestContainerConfig;
 import com.estore.controller.rest.ProductRestController;
 import com.estore.dto.request.ProductRequestDto;
+import com.estore.dto.response.ProductImportResponseDto;
 import com.estore.dto.response.ProductResponseDto;
 import com.estore.model.Product;
 import com.estore.repository.ProductRepository;
@@ -16,6 +17,8 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.security.test.context.support.WithUserDetails;
 import org.springframework.test.web.reactive.server.WebTestClient;
@@ -55,6 +58,7 @@ public class ProductRestControllerTest {
     private int randomServerPort;
 
     private static final String URI = "/products";
+    private static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
 
     private final Long NOT_EXISTED_ID = 100L;
 
@@ -108,6 +112,77 @@ public class ProductRestControllerTest {
                 });
     }
 
+    @Test
+    @WithMockUser
+    void shouldReturnPagesOfProductsByKeysetCursor() {
+
+        var savedProducts = saveToRepository(products);
+        String cursor = String.valueOf(savedProducts.get(1).getId());
+
+        webTestClient.get().uri(URI.concat("?limit={limit}"), 2)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals(NEXT_CURSOR_HEADER, cursor)
+                .expectBodyList(ProductResponseDto.class)
+                .value(productList -> assertIterableEquals(savedProducts.subList(0, 2), productList));
+
+        webTestClient.get().uri(URI.concat("?after={after}&limit={limit}"), cursor, 2)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().doesNotExist(NEXT_CURSOR_HEADER)
+                .expectBodyList(ProductResponseDto.class)
+                .value(productList -> assertIterableEquals(savedProducts.subList(2, 3), productList));
+    }
+
+    @Test
+    @WithMockUser
+    void shouldRejectLimitOutOfBounds() {
+
+        webTestClient.get().uri(URI.concat("?limit={limit}"), 0)
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        webTestClient.get().uri(URI.concat("?limit={limit}"), 1001)
+                .exchange()
+                .expectStatus().isBadRequest();
+
+        webTestClient.get().uri(URI.concat("?limit={limit}"), 1000)
+                .exchange()
+                .expectStatus().isOk();
+    }
+
+    @Test
+    @WithMockUser
+    void shouldRejectCursorOfSearch() {
+
+        webTestClient.get().uri(URI.concat("?name={name}&after={after}"), "lap", 1)
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    @WithMockUser
+    void shouldReturnOnlySelectedFieldsOfProducts() {
+
+        var savedProducts = saveToRepository(products);
+        var expectedProducts = savedProducts.stream()
+                .map(p -> new ProductResponseDto(p.getId(), p.getName(), null, p.getPrice()))
+                .toList();
+
+        webTestClient.get().uri(URI.concat("?fields={fields}"), "name,price")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].description").doesNotExist()
+                .jsonPath("$[0].name").isEqualTo(savedProducts.get(0).getName());
+
+        webTestClient.get().uri(URI.concat("?fields={fields}"), "name,price")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBodyList(ProductResponseDto.class)
+                .value(productList -> assertIterableEquals(expectedProducts, productList));
+    }
+
     @Test
     @WithMockUser
     void shouldReturnAllProductsByContainingName() {
@@ -155,6 +230,29 @@ public class ProductRestControllerTest {
                 });
     }
 
+    @Test
+    @WithMockUser
+    void shouldReturnNotModifiedIfProductETagMatches() {
+
+        var savedProducts = saveToRepository(products);
+        Long id = savedProducts.get(0).getId();
+
+        String eTag = webTestClient.get().uri(URI.concat("/{id}"), id)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().exists(HttpHeaders.ETAG)
+                .expectHeader().exists(HttpHeaders.CACHE_CONTROL)
+                .returnResult(ProductResponseDto.class)
+                .getResponseHeaders()
+                .getETag();
+
+        webTestClient.get().uri(URI.concat("/{id}"), id)
+                .ifNoneMatch(eTag)
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+    }
+
     @Test
     @WithMockUser
     void shouldThrowExceptionIfProductIdDoesNotExist() {
@@ -190,6 +288,69 @@ public class ProductRestControllerTest {
                 .verifyComplete();
     }
 
+    @Test
+    @WithMockUser(authorities = "ADMIN")
+    void shouldImportProductsAndReportInvalidRows() {
+        var existingProduct = saveToRepository(products).get(0);
+
+        String csv = """
+                name,description,price
+                %s,updated description,10.50
+                "tablet, 10 inch",Samsung,250
+                no,short name,1
+                """.formatted(existingProduct.getName());
+
+        webTestClient.post().uri(URI.concat("/import"))
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .bodyValue(csv)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ProductImportResponseDto.class)
+                .value(report -> {
+                    assertEquals(1, report.getInserted());
+                    assertEquals(1, report.getUpdated());
+                    assertEquals(1, report.getFailed());
+                    assertTrue(report.getErrors().get(0).startsWith("Line 4: Invalid 'name'"));
+                });
+
+        productService.findById(existingProduct.getId())
+                .as(StepVerifier::create)
+                .assertNext(product -> assertEquals("updated description", product.getDescription()))
+                .verifyComplete();
+    }
+
+    @Test
+    @WithMockUser(authorities = "ADMIN")
+    void shouldImportExportedProducts() {
+        var multiLineProduct = new ProductRequestDto("lamp", "Philips,\r\nwarm \"white\"\nlight", BigDecimal.valueOf(25));
+        var savedProducts = saveToRepository(List.of(products.get(0), products.get(1), multiLineProduct));
+
+        String csv = webTestClient.get().uri(URI.concat("/export"))
+                .accept(MediaType.parseMediaType("text/csv"))
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(String.class)
+                .returnResult()
+                .getResponseBody();
+
+        webTestClient.post().uri(URI.concat("/import"))
+                .contentType(MediaType.parseMediaType("text/csv"))
+                .bodyValue(csv)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody(ProductImportResponseDto.class)
+                .value(report -> {
+                    assertEquals(0, report.getInserted());
+                    assertEquals(savedProducts.size(), report.getUpdated());
+                    assertEquals(0, report.getFailed());
+                });
+
+        productService.findById(savedProducts.get(2).getId())
+                .as(StepVerifier::create)
+                .assertNext(product -> assertEquals("Philips,\nwarm \"white\"\nlight", product.getDescription()))
+                .verifyComplete();
+    }
+
     @Test
     @WithMockUser
     void shouldThrowExceptionIfProductNameAlreadyExist() {
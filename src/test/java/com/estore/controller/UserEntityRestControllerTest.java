@@ -140,6 +140,27 @@ public class UserEntityRestControllerTest {
                 .value(user -> assertEquals(savedUser, user));
     }
 
+    @Test
+    @WithMockUser
+    void shouldNeverReturnPasswordOfUsers() {
+
+        createUsersWithAddress(1);
+
+        webTestClient.get().uri(URI)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].username").exists()
+                .jsonPath("$[0].password").doesNotExist();
+
+        webTestClient.get().uri(URI.concat("?fields={fields}"), "username,password")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$[0].username").exists()
+                .jsonPath("$[0].password").doesNotExist();
+    }
+
     @Test
     @WithMockUser
     void shouldThrowExceptionIfUserIdDoesNotExist() {
@@ -241,7 +262,7 @@ public class UserEntityRestControllerTest {
         var updatedUser = users.get(2);
 
         expectedUser.setUsername(updatedUser.getUsername());
-        expectedUser.setPassword(updatedUser.getPassword());
+        expectedUser.setPassword(null);
         expectedUser.setFirstName(updatedUser.getFirstName());
         expectedUser.setLastName(updatedUser.getLastName());
         expectedUser.setEmail(updatedUser.getEmail());
@@ -307,6 +328,7 @@ public class UserEntityRestControllerTest {
                                 .collectList()
                                 .map(orders -> {
                                     user.setOrdersHistory(orders);
+                                    user.setPassword(null);
                                     return user;
                                 }))).block();
     }
@@ -315,6 +337,7 @@ public class UserEntityRestControllerTest {
         return IntStream.range(0, num)
                 .mapToObj(i -> userService.createUser(users.get(i))
                         .flatMap(user -> userService.addAddress(user.getId(), addresses.get(i)))
+                        .doOnNext(user -> user.setPassword(null))
                         .block())
                 .toList();
     }
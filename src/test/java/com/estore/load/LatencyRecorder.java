@@ -0,0 +1,124 @@
+package com.estore.load;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * {@link LatencyRecorder} collects the latency and the errors of the load test requests per endpoint.
+ *
+ * @author Dmytro Trotsenko on 7/24/23
+ */
+
+class LatencyRecorder {
+
+    private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+
+    /**
+     * Record the completed request
+     *
+     * @param endpoint    endpoint name
+     * @param nanos       request latency
+     * @param successful  false if the request failed or returned an error status
+     */
+    void record(String endpoint, long nanos, boolean successful) {
+        endpoints.computeIfAbsent(endpoint, name -> new Endpoint())
+                .record(nanos, successful);
+    }
+
+    /**
+     * Total number of failed requests
+     *
+     * @return number of errors of all endpoints
+     */
+    long errors() {
+        return endpoints.values().stream()
+                .mapToLong(endpoint -> endpoint.errors.get())
+                .sum();
+    }
+
+    /**
+     * Total number of requests
+     *
+     * @return number of requests of all endpoints
+     */
+    long requests() {
+        return endpoints.values().stream()
+                .mapToLong(Endpoint::count)
+                .sum();
+    }
+
+    /**
+     * Slowest 99th percentile of all endpoints
+     *
+     * @return latency in milliseconds
+     */
+    double maxP99Millis() {
+        return endpoints.values().stream()
+                .mapToDouble(endpoint -> endpoint.percentileMillis(99))
+                .max()
+                .orElse(0);
+    }
+
+    /**
+     * Throughput and latency percentiles table of all endpoints
+     *
+     * @param elapsedNanos duration of the whole load test
+     * @return report
+     */
+    String report(long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+        String header = String.format("%-16s %8s %7s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p95 ms", "p99 ms");
+        return header + endpoints.entrySet().stream()
+                .sorted(Map.Entry.comparingByKey())
+                .map(entry -> {
+                    Endpoint endpoint = entry.getValue();
+                    return String.format("%-16s %8d %7d %9.1f %9.2f %9.2f %9.2f",
+                            entry.getKey(), endpoint.count(), endpoint.errors.get(), endpoint.count() / seconds,
+                            endpoint.percentileMillis(50), endpoint.percentileMillis(95), endpoint.percentileMillis(99));
+                })
+                .collect(Collectors.joining(System.lineSeparator()));
+    }
+
+    //-----------------------------------
+    //         Private classes
+    //-----------------------------------
+
+    private static class Endpoint {
+
+        private long[] latencies = new long[1024];
+        private int size;
+        private final AtomicLong errors = new AtomicLong();
+
+        synchronized void record(long nanos, boolean successful) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = nanos;
+            if (!successful) {
+                errors.incrementAndGet();
+            }
+        }
+
+        synchronized int count() {
+            return size;
+        }
+
+        /**
+         * Nearest-rank percentile of the recorded latencies
+         */
+        synchronized double percentileMillis(int percentile) {
+            if (size == 0) {
+                return 0;
+            }
+            long[] sorted = Arrays.copyOf(latencies, size);
+            Arrays.sort(sorted);
+            int rank = (int) Math.ceil(percentile / 100.0 * size);
+            return sorted[Math.max(rank, 1) - 1] / 1e6;
+        }
+    }
+
+}
@@ -0,0 +1,337 @@
+package com.estore.load;
+
+import com.estore.configuration.TestContainerConfig;
+import com.estore.dto.request.OrderItemRequestDto;
+import lombok.extern.slf4j.Slf4j;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseCookie;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * This class {@link StoreLoadTest} drives a mixed workload against the REST and cart endpoints
+ * and reports the throughput and the p50/p95/p99 latency per endpoint.
+ * <p>The test is tagged {@code load} and runs only with the load-test profile:
+ * {@code mvn test -Pload-test -Dload.products=10000 -Dload.requests=20000}.
+ * The dataset size, the number of requests and the concurrency are configured by the {@code load.*} properties,
+ * {@code load.max-p99-ms} fails the test on a latency regression.</p>
+ * <p>{@link TestContainerConfig} is the class for test container configuration.</p>
+ *
+ * @author Dmytro Trotsenko on 7/24/23
+ */
+
+@Tag("load")
+@Slf4j
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "logging.level.com.estore=WARN")
+@ExtendWith(TestContainerConfig.class)
+public class StoreLoadTest {
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @LocalServerPort
+    private int randomServerPort;
+
+    @Value("${superuser.username}")
+    private String superuserUsername;
+    @Value("${load.superuser-password:admin}")
+    private String superuserPassword;
+    @Value("${superuser.password}")
+    private String superuserPasswordHash;
+
+    @Value("${load.products:2000}")
+    private int productsNum;
+    @Value("${load.users:200}")
+    private int usersNum;
+    @Value("${load.orders-per-user:10}")
+    private int ordersPerUser;
+    @Value("${load.items-per-order:5}")
+    private int itemsPerOrder;
+    @Value("${load.requests:5000}")
+    private int requestsNum;
+    @Value("${load.buyers:8}")
+    private int buyersNum;
+    @Value("${load.concurrency:32}")
+    private int concurrency;
+    @Value("${load.max-error-rate:0.01}")
+    private double maxErrorRate;
+    @Value("${load.max-p99-ms:0}")
+    private double maxP99Millis;
+
+    private static final String SESSION_COOKIE = "SESSION";
+
+    private WebClient webClient;
+    private long minProductId;
+    private List<Cart> carts;
+    private List<Buyer> buyers;
+
+    @BeforeEach
+    public void setup() {
+        seedDataset();
+
+        WebClient anonymous = WebClient.create("http://localhost:" + randomServerPort);
+        webClient = login(anonymous, superuserUsername);
+
+        // A cart is bought only by its owner, the load users share the password of the superuser
+        buyers = carts.stream()
+                .limit(buyersNum)
+                .map(cart -> new Buyer(login(anonymous, cart.username()), cart.userId(), new AtomicReference<>(cart.orderId())))
+                .toList();
+    }
+
+    @Test
+    void shouldServeMixedWorkload() {
+        var recorder = new LatencyRecorder();
+
+        // Warm up the JIT and the connection pool, the warm-up requests are not reported
+        runWorkload(Math.min(requestsNum / 10, 500), new LatencyRecorder());
+
+        long start = System.nanoTime();
+        runWorkload(requestsNum, recorder);
+        long elapsed = System.nanoTime() - start;
+
+        log.warn("Load test: {} requests, concurrency {}, {} s{}{}", recorder.requests(), concurrency,
+                String.format("%.1f", elapsed / 1e9), System.lineSeparator(), recorder.report(elapsed));
+
+        double errorRate = (double) recorder.errors() / recorder.requests();
+        assertTrue(errorRate <= maxErrorRate, () -> "Error rate " + errorRate + " exceeds " + maxErrorRate);
+        if (maxP99Millis > 0) {
+            assertTrue(recorder.maxP99Millis() <= maxP99Millis,
+                    () -> "p99 latency " + recorder.maxP99Millis() + " ms exceeds " + maxP99Millis + " ms");
+        }
+    }
+
+    //-----------------------------------
+    //         Private methods
+    //-----------------------------------
+
+    private void runWorkload(int requests, LatencyRecorder recorder) {
+        Flux.range(0, requests)
+                .flatMap(i -> nextRequest(recorder), concurrency)
+                .blockLast(Duration.ofMinutes(30));
+    }
+
+    /**
+     * Pick the next request by the workload mix: browse 40%, search 20%, add to cart 20%, order history 15%, buy 5%.
+     * A buy succeeds only by the redirect to the cart, the rendered error page is an error.
+     */
+    private Mono<Void> nextRequest(LatencyRecorder recorder) {
+        var random = ThreadLocalRandom.current();
+        int dice = random.nextInt(100);
+        Cart cart = carts.get(random.nextInt(carts.size()));
+
+        if (dice < 40) {
+            long after = minProductId + random.nextInt(productsNum) - 1;
+            return timed("browse", recorder, webClient.get()
+                    .uri(uri -> uri.path("/products").queryParam("after", after).queryParam("limit", 50).build()));
+        }
+        if (dice < 60) {
+            String name = "product" + random.nextInt(1, 100);
+            return timed("search", recorder, webClient.get()
+                    .uri(uri -> uri.path("/products").queryParam("name", name).queryParam("limit", 50).build()));
+        }
+        if (dice < 80) {
+            long productId = minProductId + random.nextInt(productsNum);
+            return timed("addToCart", recorder, webClient.post()
+                    .uri("/orders/add/{orderId}", cart.orderId())
+                    .bodyValue(new OrderItemRequestDto(productId, 1)));
+        }
+        if (dice < 95) {
+            return timed("orderHistory", recorder, webClient.get()
+                    .uri(uri -> uri.path("/users/ordersHistory/{id}").queryParam("limit", 20).build(cart.userId())));
+        }
+        Buyer buyer = buyers.get(random.nextInt(buyers.size()));
+        Long orderId = buyer.cartId().getAndSet(null);
+        if (orderId == null) {
+            // The cart of this buyer is being bought by another request
+            return Mono.empty();
+        }
+        return timed("buy", recorder, buyer.webClient().post()
+                        .uri("/cart/buy")
+                        .body(BodyInserters.fromFormData("id", String.valueOf(orderId))),
+                HttpStatusCode::is3xxRedirection)
+                .flatMap(bought -> bought ? refillNextCart(buyer.userId()) : Mono.just(orderId))
+                .doOnNext(buyer.cartId()::set)
+                .then();
+    }
+
+    /**
+     * Time the request from the subscription to the received body, 4xx and 5xx responses are errors
+     */
+    private Mono<Void> timed(String endpoint, LatencyRecorder recorder, WebClient.RequestHeadersSpec<?> request) {
+        return timed(endpoint, recorder, request, status -> !status.isError()).then();
+    }
+
+    /**
+     * Time the request from the subscription to the received body
+     *
+     * @return true if the response status is successful by the predicate
+     */
+    private Mono<Boolean> timed(String endpoint, LatencyRecorder recorder, WebClient.RequestHeadersSpec<?> request,
+                                Predicate<HttpStatusCode> successful) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return request.exchangeToMono(response -> response.releaseBody()
+                            .thenReturn(successful.test(response.statusCode())))
+                    .onErrorReturn(false)
+                    .doOnNext(success -> recorder.record(endpoint, System.nanoTime() - start, success));
+        });
+    }
+
+    /**
+     * Put one product into the new cart created by the checkout, so the buyer can check it out again.
+     * It is not timed, the new cart id is returned.
+     */
+    private Mono<Long> refillNextCart(Long userId) {
+        return databaseClient.sql("""
+                        WITH cart AS (
+                            SELECT id
+                            FROM e_store.order
+                            WHERE fk_user_id = :user_id AND status = 'CREATED'
+                            ORDER BY id DESC
+                            LIMIT 1
+                        ),
+                        item AS (
+                            INSERT INTO e_store.order_item (fk_order_id, fk_product_id, quantity)
+                            SELECT c.id, :product_id, 1 FROM cart c
+                            ON CONFLICT (fk_order_id, fk_product_id) DO NOTHING
+                        )
+                        SELECT id FROM cart
+                        """)
+                .bind("user_id", userId)
+                .bind("product_id", minProductId)
+                .map(row -> row.get("id", Long.class))
+                .one();
+    }
+
+    /**
+     * Log in by the form and return the client sending the session cookie
+     */
+    private WebClient login(WebClient client, String username) {
+        ResponseCookie session = client.post()
+                .uri("/login")
+                .body(BodyInserters.fromFormData("username", username)
+                        .with("password", superuserPassword))
+                .exchangeToMono(response -> response.releaseBody()
+                        .then(Mono.justOrEmpty(response.cookies().getFirst(SESSION_COOKIE))))
+                .block();
+        assertNotNull(session, "Login of " + username + " failed");
+        return client.mutate()
+                .defaultCookie(SESSION_COOKIE, session.getValue())
+                .build();
+    }
+
+    /**
+     * Seed the catalog, the users with their order history and one cart per user by set-based inserts
+     */
+    private void seedDataset() {
+        databaseClient.sql("""
+                        INSERT INTO e_store.product (name, description, price)
+                        SELECT 'product' || i, 'load test product ' || i, 1 + (i % 1000) * 1.25
+                        FROM generate_series(1, :products) AS i
+                        """)
+                .bind("products", productsNum)
+                .then()
+                .then(databaseClient.sql("""
+                                INSERT INTO e_store.user (username, password, role, first_name, last_name, email, phone)
+                                SELECT 'load_user' || i, :password, 'USER', 'First', 'Last',
+                                       'load_user' || i || '@gmail.com', '+38' || lpad(i::text, 10, '0')
+                                FROM generate_series(1, :users) AS i
+                                """)
+                        .bind("users", usersNum)
+                        .bind("password", superuserPasswordHash)
+                        .then())
+                .then(databaseClient.sql("""
+                                INSERT INTO e_store.order (fk_user_id, status)
+                                SELECT u.id, 'ACCEPTED'
+                                FROM e_store.user u, generate_series(1, :orders)
+                                WHERE u.username LIKE 'load\\_user%'
+                                UNION ALL
+                                SELECT u.id, 'CREATED'
+                                FROM e_store.user u
+                                WHERE u.username LIKE 'load\\_user%'
+                                """)
+                        .bind("orders", ordersPerUser)
+                        .then())
+                .block();
+
+        minProductId = databaseClient.sql("SELECT min(id) AS id FROM e_store.product WHERE name LIKE 'product%'")
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .blockOptional()
+                .orElseThrow();
+
+        // Distinct products per order: the items of one order take consecutive product ids
+        databaseClient.sql("""
+                        INSERT INTO e_store.order_item (fk_order_id, fk_product_id, quantity)
+                        SELECT o.id, :min_product_id + (o.id * :items + i) % :products, 1 + i % 3
+                        FROM e_store.order o
+                             JOIN e_store.user u ON u.id = o.fk_user_id
+                             CROSS JOIN generate_series(0, :items - 1) AS i
+                        WHERE u.username LIKE 'load\\_user%'
+                        """)
+                .bind("min_product_id", minProductId)
+                .bind("items", Math.min(itemsPerOrder, productsNum))
+                .bind("products", productsNum)
+                .then()
+                .then(databaseClient.sql("""
+                                UPDATE e_store.order o
+                                SET (total_price, item_count) = (SELECT COALESCE(SUM(oi.quantity * p.price), 0), COALESCE(SUM(oi.quantity), 0)
+                                                                 FROM e_store.order_item oi
+                                                                 JOIN e_store.product p ON p.id = oi.fk_product_id
+                                                                 WHERE oi.fk_order_id = o.id)
+                                FROM e_store.user u
+                                WHERE u.id = o.fk_user_id AND u.username LIKE 'load\\_user%'
+                                """)
+                        .then())
+                .block();
+
+        carts = databaseClient.sql("""
+                        SELECT o.id, o.fk_user_id, u.username
+                        FROM e_store.order o
+                             JOIN e_store.user u ON u.id = o.fk_user_id
+                        WHERE o.status = 'CREATED' AND u.username LIKE 'load\\_user%'
+                        ORDER BY o.id
+                        """)
+                .map(row -> new Cart(row.get("id", Long.class), row.get("fk_user_id", Long.class),
+                        row.get("username", String.class)))
+                .all()
+                .collectList()
+                .block();
+        assertNotNull(carts);
+
+        log.warn("Load test dataset: {} products, {} users, {} orders per user, {} items per order",
+                productsNum, usersNum, ordersPerUser, itemsPerOrder);
+    }
+
+    private record Cart(Long orderId, Long userId, String username) {
+    }
+
+    /**
+     * Load user checking out its own cart, the cart id is taken while a buy is in flight
+     */
+    private record Buyer(WebClient webClient, Long userId, AtomicReference<Long> cartId) {
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.estore.repository;
+
+import com.estore.configuration.TestContainerConfig;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.Result;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * This class {@link IndexUsageTest} is the query plan regression test for the foreign key and lookup indexes.
+ * <p>Sequential scans are disabled for the transaction of each query, so the planner picks the index whenever it can serve the query,
+ * regardless of the size of the test tables.</p>
+ * <p>{@link TestContainerConfig} is the class for test container configuration.</p>
+ *
+ * @author Dmytro Trotsenko on 7/17/23
+ */
+
+@SpringBootTest
+@ExtendWith(TestContainerConfig.class)
+public class IndexUsageTest {
+
+    @Autowired
+    private DatabaseClient databaseClient;
+
+    @ParameterizedTest
+    @CsvSource(delimiter = '|', value = {
+            "SELECT * FROM e_store.order_item WHERE fk_order_id = 1                     | order_item_order_id_product_id_key",
+            "SELECT * FROM e_store.order_item WHERE fk_order_id = 1 AND fk_product_id = 1 | order_item_order_id_product_id_key",
+            "DELETE FROM e_store.order_item WHERE fk_product_id = 1                     | order_item_product_id_idx",
+            "SELECT * FROM e_store.order WHERE fk_user_id = 1                           | order_user_id_status_idx",
+            "SELECT * FROM e_store.order WHERE fk_user_id = 1 AND status = 'CREATED'    | order_user_id_status_idx",
+            "SELECT * FROM e_store.address WHERE fk_user_id = 1                         | address_user_id_idx",
+            "SELECT * FROM e_store.product WHERE name = 'laptop'                        | product_name_key"
+    })
+    void shouldUseIndex(String query, String index) {
+
+        String plan = explain(query);
+
+        assertNotNull(plan);
+        assertTrue(plan.contains(index), () -> "Expected " + index + " in the plan of '" + query + "':\n" + plan);
+    }
+
+    //-----------------------------------
+    //         Private methods
+    //-----------------------------------
+
+    private String explain(String query) {
+        // SET LOCAL lasts until the rollback, so the pooled connection is returned with the sequential scans enabled
+        return databaseClient.inConnectionMany(connection -> Flux.usingWhen(
+                        Mono.from(connection.beginTransaction()).thenReturn(connection),
+                        tx -> Flux.from(tx.createStatement("SET LOCAL enable_seqscan = off").execute())
+                                .flatMap(Result::getRowsUpdated)
+                                .thenMany(Flux.from(tx.createStatement("EXPLAIN " + query).execute()))
+                                .flatMap(result -> result.map((row, metadata) -> row.get(0, String.class))),
+                        Connection::rollbackTransaction))
+                .collect(Collectors.joining("\n"))
+                .block();
+    }
+
+}
@@ -0,0 +1,184 @@
+package com.estore.repository;
+
+import com.estore.configuration.TestContainerConfig;
+import com.estore.exception.ModelNotFoundException;
+import com.estore.service.OrderService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+
+import static com.estore.model.OrderStatus.ACCEPTED;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * This class {@link OrderCheckoutTest} provides integration tests for the one statement checkout
+ * of {@link OrderCustomRepository#checkout(Long, String)} through {@link OrderService#accept(Long, String)}.
+ * <p>The carts are seeded with stale zero totals, the checkout must store the recomputed ones.</p>
+ * <p>{@link TestContainerConfig} is the class for test container configuration.</p>
+ *
+ * @author Dmytro Trotsenko on 7/28/23
+ */
+
+@SpringBootTest
+@ExtendWith(TestContainerConfig.class)
+public class OrderCheckoutTest {
+
+    @Autowired
+    private DatabaseClient databaseClient;
+    @Autowired
+    private OrderService orderService;
+
+    private static final BigDecimal PRICE = new BigDecimal("12.50");
+    private static final String OWNER = "checkout_owner";
+    private static final String STRANGER = "checkout_stranger";
+
+    private Long productId;
+    private Long ownerId;
+
+    @BeforeEach
+    public void setup() {
+        productId = databaseClient.sql("""
+                        INSERT INTO e_store.product (name, description, price)
+                        VALUES ('checkout_product', 'order checkout test product', :price)
+                        RETURNING id
+                        """)
+                .bind("price", PRICE)
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .block();
+        ownerId = insertUser(OWNER, "+380000000001");
+        insertUser(STRANGER, "+380000000002");
+    }
+
+    @AfterEach
+    public void cleanup() {
+        // The orders and their items are deleted by cascade
+        databaseClient.sql("DELETE FROM e_store.user WHERE username IN (:owner, :stranger)")
+                .bind("owner", OWNER)
+                .bind("stranger", STRANGER)
+                .then()
+                .then(databaseClient.sql("DELETE FROM e_store.product WHERE id = :id")
+                        .bind("id", productId)
+                        .then())
+                .block();
+    }
+
+    @Test
+    void shouldAcceptCartWithRecomputedTotalsAndCreateNewCart() {
+        Long cartId = insertCart(3);
+
+        orderService.accept(cartId, OWNER)
+                .as(StepVerifier::create)
+                .assertNext(order -> {
+                    assertEquals(cartId, order.getId());
+                    assertEquals(ACCEPTED, order.getStatus());
+                    assertEquals(0, PRICE.multiply(BigDecimal.valueOf(3)).compareTo(order.getTotalPrice()));
+                })
+                .verifyComplete();
+
+        databaseClient.sql("SELECT item_count FROM e_store.order WHERE id = :id")
+                .bind("id", cartId)
+                .map(row -> row.get("item_count", Integer.class))
+                .one()
+                .as(StepVerifier::create)
+                .expectNext(3)
+                .verifyComplete();
+
+        databaseClient.sql("""
+                        SELECT COUNT(*) AS carts
+                        FROM e_store.order
+                        WHERE fk_user_id = :user_id AND status = 'CREATED' AND id > :id
+                        """)
+                .bind("user_id", ownerId)
+                .bind("id", cartId)
+                .map(row -> row.get("carts", Long.class))
+                .one()
+                .as(StepVerifier::create)
+                .expectNext(1L)
+                .verifyComplete();
+    }
+
+    @Test
+    void shouldRejectRepeatedCheckout() {
+        Long cartId = insertCart(1);
+
+        orderService.accept(cartId, OWNER)
+                .as(StepVerifier::create)
+                .expectNextCount(1)
+                .verifyComplete();
+
+        orderService.accept(cartId, OWNER)
+                .as(StepVerifier::create)
+                .expectError(ModelNotFoundException.class)
+                .verify();
+    }
+
+    @Test
+    void shouldRejectCheckoutOfCartOfAnotherUser() {
+        Long cartId = insertCart(1);
+
+        orderService.accept(cartId, STRANGER)
+                .as(StepVerifier::create)
+                .expectError(ModelNotFoundException.class)
+                .verify();
+    }
+
+    @Test
+    void shouldRejectCheckoutOfEmptyCart() {
+        Long cartId = insertCart(0);
+
+        orderService.accept(cartId, OWNER)
+                .as(StepVerifier::create)
+                .expectError(ModelNotFoundException.class)
+                .verify();
+    }
+
+    //-----------------------------------
+    //         Private methods
+    //-----------------------------------
+
+    private Long insertUser(String username, String phone) {
+        return databaseClient.sql("""
+                        INSERT INTO e_store.user (username, password, role, first_name, last_name, email, phone)
+                        VALUES (:username, 'password', 'USER', 'First', 'Last', :username || '@gmail.com', :phone)
+                        RETURNING id
+                        """)
+                .bind("username", username)
+                .bind("phone", phone)
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .block();
+    }
+
+    /**
+     * Insert a CREATED order of the owner with the quantity of the test product, no item if the quantity is 0
+     */
+    private Long insertCart(int quantity) {
+        return databaseClient.sql("""
+                        WITH inserted AS (
+                            INSERT INTO e_store.order (fk_user_id, status) VALUES (:user_id, 'CREATED')
+                            RETURNING id
+                        ),
+                        item AS (
+                            INSERT INTO e_store.order_item (fk_order_id, fk_product_id, quantity)
+                            SELECT i.id, :product_id, :quantity FROM inserted i
+                            WHERE :quantity > 0
+                        )
+                        SELECT id FROM inserted
+                        """)
+                .bind("user_id", ownerId)
+                .bind("product_id", productId)
+                .bind("quantity", quantity)
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .block();
+    }
+
+}
@@ -0,0 +1,170 @@
+package com.estore.repository;
+
+import com.estore.configuration.TestContainerConfig;
+import com.estore.model.Order;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.r2dbc.core.DatabaseClient;
+import reactor.test.StepVerifier;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * This class {@link OrderTotalsTest} provides integration tests for the recomputation of the order totals
+ * by {@link OrderRepository}.
+ * <p>The orders are seeded with stale zero totals, only the CREATED ones must be recomputed.</p>
+ * <p>{@link TestContainerConfig} is the class for test container configuration.</p>
+ *
+ * @author Dmytro Trotsenko on 7/27/23
+ */
+
+@SpringBootTest
+@ExtendWith(TestContainerConfig.class)
+public class OrderTotalsTest {
+
+    @Autowired
+    private DatabaseClient databaseClient;
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private static final BigDecimal PRICE = new BigDecimal("12.50");
+
+    private Long productId;
+    private final List<Long> orderIds = new ArrayList<>();
+
+    @BeforeEach
+    public void setup() {
+        productId = databaseClient.sql("""
+                        INSERT INTO e_store.product (name, description, price)
+                        VALUES ('totals_product', 'order totals test product', :price)
+                        RETURNING id
+                        """)
+                .bind("price", PRICE)
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .block();
+    }
+
+    @AfterEach
+    public void cleanup() {
+        databaseClient.sql("DELETE FROM e_store.order WHERE id = ANY(:ids)")
+                .bind("ids", orderIds.toArray(Long[]::new))
+                .then()
+                .then(databaseClient.sql("DELETE FROM e_store.product WHERE id = :id")
+                        .bind("id", productId)
+                        .then())
+                .block();
+        orderIds.clear();
+    }
+
+    @Test
+    void shouldRefreshAllStaleTotalsOfCreatedOrders() {
+        Long createdOrderId = insertOrderWithItem("CREATED", 3);
+        Long acceptedOrderId = insertOrderWithItem("ACCEPTED", 2);
+
+        orderRepository.refreshAllTotals()
+                .as(StepVerifier::create)
+                .assertNext(updated -> assertTrue(updated >= 1))
+                .verifyComplete();
+
+        assertTotals(createdOrderId, PRICE.multiply(BigDecimal.valueOf(3)), 3);
+        assertTotals(acceptedOrderId, BigDecimal.ZERO, 0);
+    }
+
+    @Test
+    void shouldRefreshTotalsOfCreatedOrdersByProductId() {
+        Long createdOrderId = insertOrderWithItem("CREATED", 2);
+        Long acceptedOrderId = insertOrderWithItem("ACCEPTED", 2);
+
+        orderRepository.refreshTotalsByProductId(productId)
+                .as(StepVerifier::create)
+                .expectNext(1L)
+                .verifyComplete();
+
+        assertTotals(createdOrderId, PRICE.multiply(BigDecimal.valueOf(2)), 2);
+        assertTotals(acceptedOrderId, BigDecimal.ZERO, 0);
+    }
+
+    @Test
+    void shouldRefreshTotalsOfCreatedOrdersWithoutProduct() {
+        Long createdOrderId = insertOrderWithItem("CREATED", 2);
+        Long acceptedOrderId = insertOrderWithItem("ACCEPTED", 2);
+        databaseClient.sql("UPDATE e_store.order SET total_price = :total_price, item_count = 2 WHERE id = ANY(:ids)")
+                .bind("total_price", PRICE.multiply(BigDecimal.valueOf(2)))
+                .bind("ids", new Long[]{createdOrderId, acceptedOrderId})
+                .then()
+                .block();
+
+        orderRepository.refreshTotalsWithoutProduct(productId)
+                .as(StepVerifier::create)
+                .expectNext(1L)
+                .verifyComplete();
+
+        assertTotals(createdOrderId, BigDecimal.ZERO, 0);
+        assertTotals(acceptedOrderId, PRICE.multiply(BigDecimal.valueOf(2)), 2);
+    }
+
+    @Test
+    void shouldRefreshTotalsOfCreatedOrdersByProductIds() {
+        Long createdOrderId = insertOrderWithItem("CREATED", 4);
+
+        orderRepository.refreshTotalsByProductIds(List.of(productId))
+                .as(StepVerifier::create)
+                .expectNext(1L)
+                .verifyComplete();
+
+        assertTotals(createdOrderId, PRICE.multiply(BigDecimal.valueOf(4)), 4);
+    }
+
+    //-----------------------------------
+    //         Private methods
+    //-----------------------------------
+
+    /**
+     * Insert an order with one item of the test product, the totals are left at their zero defaults
+     */
+    private Long insertOrderWithItem(String status, int quantity) {
+        Long orderId = databaseClient.sql("""
+                        WITH inserted AS (
+                            INSERT INTO e_store.order (status) VALUES (:status)
+                            RETURNING id
+                        ),
+                        item AS (
+                            INSERT INTO e_store.order_item (fk_order_id, fk_product_id, quantity)
+                            SELECT i.id, :product_id, :quantity FROM inserted i
+                        )
+                        SELECT id FROM inserted
+                        """)
+                .bind("status", status)
+                .bind("product_id", productId)
+                .bind("quantity", quantity)
+                .map(row -> row.get("id", Long.class))
+                .one()
+                .block();
+        orderIds.add(orderId);
+        return orderId;
+    }
+
+    private void assertTotals(Long orderId, BigDecimal totalPrice, int itemCount) {
+        orderRepository.findById(orderId)
+                .map(Order::getTotalPrice)
+                .as(StepVerifier::create)
+                .assertNext(actual -> assertEquals(0, totalPrice.compareTo(actual), () -> "total price " + actual))
+                .verifyComplete();
+        orderRepository.findById(orderId)
+                .map(Order::getItemCount)
+                .as(StepVerifier::create)
+                .expectNext(itemCount)
+                .verifyComplete();
+    }
+
+}